@@ -0,0 +1,42 @@
+package sharetrace.app;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import sharetrace.config.AppConfig;
+import sharetrace.logging.event.MetricsEvent;
+import sharetrace.model.Context;
+import sharetrace.model.Parameters;
+import sharetrace.model.factory.ContactFileParser;
+import sharetrace.model.factory.IdFactory;
+
+// Measures how fast a contact file is parsed into a contact network.
+public final class ParserBenchmarkRunner implements Runner {
+
+  @Override
+  public void run(Parameters parameters, Context context) {
+    var config = AppConfig.of(parameters, context);
+    var keyFactory = config.getKeyFactory();
+    var path = Path.of(context.config().getString("path"));
+    var delimiter = context.config().getString("delimiter");
+    for (var repeats : config.getIterations()) {
+      for (int i = 0; i < repeats; i++) {
+        var logger = context.eventLogger().withFields(Map.of("k", keyFactory.getKey()));
+        logger.log(parse(path, delimiter, context.referenceTime()));
+      }
+    }
+  }
+
+  private MetricsEvent parse(Path path, String delimiter, long referenceTime) {
+    var start = System.nanoTime();
+    var parser = ContactFileParser.parse(path, delimiter);
+    var network = parser.toContactNetwork(IdFactory.newId(), referenceTime);
+    var nanos = System.nanoTime() - start;
+    return new MetricsEvent(
+        Map.of(
+            "ParsedEdges", parser.parsedEdges(),
+            "Edges", (long) network.edges(),
+            "ParseTime", TimeUnit.NANOSECONDS.toMillis(nanos),
+            "EdgesPerSecond", Math.round(parser.parsedEdges() / (nanos / 1e9))));
+  }
+}
@@ -8,6 +8,7 @@ import sharetrace.model.factory.CachedContactNetworkFactory;
 import sharetrace.model.factory.ContactNetworkFactory;
 import sharetrace.model.factory.FileContactNetworkFactoryBuilder;
 import sharetrace.model.factory.GnmRandomContactNetworkFactoryBuilder;
+import sharetrace.model.factory.MappedContactNetworkFactoryBuilder;
 import sharetrace.model.factory.RandomRegularContactNetworkFactoryBuilder;
 import sharetrace.model.factory.ScaleFreeContactNetworkFactoryBuilder;
 import sharetrace.model.factory.TimeFactory;
@@ -31,6 +32,7 @@ public record ContactNetworkFactoryParser(
       case ("watts-strogatz") -> wattsStrogatz(config);
       case ("scale-free") -> scaleFree(config);
       case ("file") -> file(config);
+      case ("mapped") -> mapped(config);
       default -> throw new IllegalArgumentException(type);
     };
   }
@@ -96,6 +98,16 @@ public record ContactNetworkFactoryParser(
         .build();
   }
 
+  private ContactNetworkFactory mapped(Config config) {
+    return MappedContactNetworkFactoryBuilder.create()
+        .path(Path.of(config.getString("path")))
+        .delimiter(config.getString("delimiter"))
+        .directory(Path.of(config.getString("directory")))
+        .memoryBudget(config.getBytes("memory-budget"))
+        .referenceTime(context.referenceTime())
+        .build();
+  }
+
   private TimeFactory timeFactory(Config config) {
     return timeFactoryParser.parse(config.getConfig("time-factory"));
   }
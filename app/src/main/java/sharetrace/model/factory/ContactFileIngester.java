@@ -0,0 +1,310 @@
+package sharetrace.model.factory;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntHeapPriorityQueue;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import sharetrace.model.factory.ContactFileParser.ContactConsumer;
+import sharetrace.model.factory.ContactFileParser.Delimiter;
+import sharetrace.model.graph.MappedContactNetwork;
+
+/*
+ Ingests a contact file into a MappedContactNetwork without holding its contacts on the heap. The
+ file is streamed into a buffer of contacts that fits in the memory budget. Each time the buffer
+ fills, it is sorted by pair of users and written as a run that keeps the latest time of each
+ contact. The runs are then merged, which renumbers the users and again keeps the latest time of
+ each contact, and the result is written as a partitioned network. At most 64 runs are merged at
+ once, or fewer if the budget cannot buffer that many, so more runs are first merged in passes.
+ Only the users, rather than the contacts, are kept on the heap outside the budget.
+*/
+public record ContactFileIngester(String delimiter, long memoryBudget) {
+
+  // A buffered contact is a pair of users and a contact time.
+  private static final int CONTACT_BYTES = 16;
+  private static final int MIN_BUFFER_SIZE = 1 << 12;
+  private static final int MAX_BUFFER_SIZE = 1 << 20;
+  private static final int MAX_FAN_IN = 64;
+
+  public void ingest(Path path, Path directory) {
+    try {
+      // Taken before reading, so that changes while ingesting make the network stale.
+      var source = MappedContactNetwork.Source.of(path);
+      Files.createDirectories(directory);
+      var temporary = Files.createTempDirectory(directory, "ingest");
+      try {
+        var runs = sort(path, temporary);
+        var labels = runs.labels();
+        var edgeFile = temporary.resolve("edges.bin");
+        var merged = merge(mergePasses(runs.files(), temporary), labels, edgeFile);
+        write(directory, source, edgeFile, labels, merged);
+      } finally {
+        delete(temporary);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // The buffer is no longer reachable once the runs are written, so merging can use the budget.
+  private SortedRuns sort(Path path, Path temporary) throws IOException {
+    var separator = Delimiter.of(delimiter);
+    var runs = new Runs(temporary, capacity());
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var size = channel.size();
+      for (int chunk = 0; chunk < ContactFileParser.chunks(size); chunk++) {
+        ContactFileParser.parseChunk(channel, size, chunk, separator, runs);
+      }
+    }
+    runs.flush();
+    return new SortedRuns(runs.files, runs.labels());
+  }
+
+  private int capacity() {
+    var capacity = Math.min(memoryBudget / CONTACT_BYTES, Integer.MAX_VALUE - 8);
+    return (int) Math.max(capacity, MIN_BUFFER_SIZE);
+  }
+
+  // Splits the budget among the streams that are open at once.
+  private int bufferSize(int streams) {
+    var size = memoryBudget / (streams + 1);
+    return Math.clamp(size, MIN_BUFFER_SIZE, MAX_BUFFER_SIZE);
+  }
+
+  private int fanIn() {
+    return Math.clamp(memoryBudget / MIN_BUFFER_SIZE - 1, 2, MAX_FAN_IN);
+  }
+
+  // Merges groups of runs into longer runs until few enough remain to merge at once.
+  private List<Path> mergePasses(List<Path> files, Path temporary) throws IOException {
+    var fanIn = fanIn();
+    var bufferSize = bufferSize(fanIn + 1);
+    while (files.size() > fanIn) {
+      var merged = new ObjectArrayList<Path>();
+      for (int from = 0; from < files.size(); from += fanIn) {
+        var group = files.subList(from, Math.min(from + fanIn, files.size()));
+        if (group.size() == 1) {
+          merged.add(group.getFirst());
+          continue;
+        }
+        var file = Files.createTempFile(temporary, "run", ".bin");
+        try (var output = newOutput(file, bufferSize)) {
+          merge(
+              group,
+              bufferSize,
+              (contact, contactTime) -> {
+                output.writeLong(contact);
+                output.writeLong(contactTime);
+              });
+        }
+        for (var run : group) {
+          Files.delete(run);
+        }
+        merged.add(file);
+      }
+      files = merged;
+    }
+    return files;
+  }
+
+  private Merged merge(List<Path> files, int[] labels, Path edgeFile) throws IOException {
+    var merged = new Merged(labels.length);
+    var bufferSize = bufferSize(files.size() + 1);
+    try (var output = newOutput(edgeFile, bufferSize)) {
+      merge(
+          files,
+          bufferSize,
+          (contact, contactTime) -> merged.write(output, contact, contactTime, labels));
+    }
+    return merged;
+  }
+
+  // Passes each contact of the runs to the consumer once, in order, with its latest time.
+  private static void merge(List<Path> files, int bufferSize, RunConsumer consumer)
+      throws IOException {
+    var inputs = new DataInputStream[files.size()];
+    var contacts = new long[files.size()];
+    var contactTimes = new long[files.size()];
+    var queue =
+        new IntHeapPriorityQueue(
+            (a, b) -> {
+              var compared = Long.compare(contacts[a], contacts[b]);
+              return compared != 0 ? compared : Long.compare(contactTimes[a], contactTimes[b]);
+            });
+    try {
+      for (int r = 0; r < inputs.length; r++) {
+        inputs[r] = newInput(files.get(r), bufferSize);
+        if (next(inputs[r], r, contacts, contactTimes)) {
+          queue.enqueue(r);
+        }
+      }
+      var contact = -1L;
+      var contactTime = 0L;
+      while (!queue.isEmpty()) {
+        var r = queue.dequeueInt();
+        if (contacts[r] != contact && contact >= 0) {
+          consumer.accept(contact, contactTime);
+        }
+        contact = contacts[r];
+        contactTime = contactTimes[r];
+        if (next(inputs[r], r, contacts, contactTimes)) {
+          queue.enqueue(r);
+        }
+      }
+      if (contact >= 0) {
+        consumer.accept(contact, contactTime);
+      }
+    } finally {
+      for (var input : inputs) {
+        if (input != null) {
+          input.close();
+        }
+      }
+    }
+  }
+
+  private void write(
+      Path directory,
+      MappedContactNetwork.Source source,
+      Path edgeFile,
+      int[] labels,
+      Merged merged)
+      throws IOException {
+    var writer = MappedContactNetwork.writer(directory, source, labels, merged.degrees);
+    try (var input = newInput(edgeFile, bufferSize(1))) {
+      for (int e = 0; e < merged.edges; e++) {
+        writer.add(input.readInt(), input.readInt(), input.readLong());
+      }
+    }
+    writer.finish();
+  }
+
+  private static boolean next(DataInputStream input, int r, long[] contacts, long[] times)
+      throws IOException {
+    try {
+      contacts[r] = input.readLong();
+      times[r] = input.readLong();
+      return true;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  private static DataInputStream newInput(Path file, int bufferSize) throws IOException {
+    return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), bufferSize));
+  }
+
+  private static DataOutputStream newOutput(Path file, int bufferSize) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), bufferSize));
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (var files = Files.list(directory)) {
+      for (var file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  private record SortedRuns(List<Path> files, int[] labels) {}
+
+  private interface RunConsumer {
+
+    void accept(long contact, long contactTime) throws IOException;
+  }
+
+  private static final class Runs implements ContactConsumer {
+
+    private final Path directory;
+    private final long[] contacts;
+    private final long[] contactTimes;
+    private final IntOpenHashSet users;
+    private final List<Path> files;
+
+    private int size;
+
+    Runs(Path directory, int capacity) {
+      this.directory = directory;
+      this.contacts = new long[capacity];
+      this.contactTimes = new long[capacity];
+      this.users = new IntOpenHashSet();
+      this.files = new ObjectArrayList<>();
+    }
+
+    @Override
+    public void accept(long seconds, int v1, int v2) {
+      if (v1 != v2) {
+        users.add(v1);
+        users.add(v2);
+        contacts[size] = ((long) Math.min(v1, v2) << 32) | Math.max(v1, v2);
+        // Assumes the contact times are stored in seconds.
+        contactTimes[size++] = Math.multiplyExact(seconds, 1000);
+        if (size == contacts.length) {
+          flush();
+        }
+      }
+    }
+
+    void flush() {
+      if (size == 0) {
+        return;
+      }
+      // Sorting by contact and then time puts the latest time of each contact last.
+      LongArrays.radixSort(contacts, contactTimes, 0, size);
+      var file = directory.resolve("run-" + files.size() + ".bin");
+      try (var output = newOutput(file, MAX_BUFFER_SIZE)) {
+        for (int i = 0; i < size; i++) {
+          if (i + 1 == size || contacts[i] != contacts[i + 1]) {
+            output.writeLong(contacts[i]);
+            output.writeLong(contactTimes[i]);
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      files.add(file);
+      size = 0;
+    }
+
+    int[] labels() {
+      var labels = users.toIntArray();
+      IntArrays.radixSort(labels);
+      return labels;
+    }
+  }
+
+  private static final class Merged {
+
+    private final int[] degrees;
+    private int edges;
+
+    Merged(int users) {
+      this.degrees = new int[users];
+    }
+
+    void write(DataOutputStream output, long contact, long contactTime, int[] labels)
+        throws IOException {
+      var v1 = IntArrays.binarySearch(labels, (int) (contact >>> 32));
+      var v2 = IntArrays.binarySearch(labels, (int) contact);
+      output.writeInt(v1);
+      output.writeInt(v2);
+      output.writeLong(contactTime);
+      degrees[v1]++;
+      degrees[v2]++;
+      edges = Math.addExact(edges, 1);
+    }
+  }
+}
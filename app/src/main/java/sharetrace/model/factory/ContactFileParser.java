@@ -0,0 +1,293 @@
+package sharetrace.model.factory;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import sharetrace.model.graph.CompactContactNetwork;
+import sharetrace.model.graph.ContactNetwork;
+
+/*
+ Parses a contact file, in which each line starts with the contact time in seconds and the ids of
+ the two users, separated by the delimiter. The rest of a line after another delimiter is ignored,
+ as are blank lines, but any other line fails the parse. The file is memory-mapped in chunks that
+ are parsed in parallel. A line belongs to the chunk in which it starts. Each chunk keeps the latest
+ time of each contact, keyed by the pair of users, and the chunks are merged once they are parsed.
+*/
+public final class ContactFileParser {
+
+  static final long CHUNK_SIZE = 1 << 24;
+  private static final int MAX_LINE_LENGTH = 1 << 16;
+
+  private final long parsedEdges;
+  private final long[] contacts;
+  private final long[] contactTimes;
+
+  private ContactFileParser(long parsedEdges, long[] contacts, long[] contactTimes) {
+    this.parsedEdges = parsedEdges;
+    this.contacts = contacts;
+    this.contactTimes = contactTimes;
+  }
+
+  public static ContactFileParser parse(Path path, String delimiter) {
+    var separator = Delimiter.of(delimiter);
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var size = channel.size();
+      var chunks =
+          IntStream.range(0, chunks(size))
+              .parallel()
+              .mapToObj(chunk -> parseChunk(channel, size, chunk, separator, new Chunk()))
+              .toList();
+      return merge(chunks);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /*
+   Inserting the entries of one hash map into another in iteration order degrades open addressing,
+   so the chunks are merged by sorting their contacts instead. Sorting also makes the network
+   independent of how the file was split into chunks.
+  */
+  private static ContactFileParser merge(List<Chunk> chunks) {
+    var lines = 0L;
+    var size = 0;
+    for (var chunk : chunks) {
+      lines += chunk.lines;
+      size = Math.addExact(size, chunk.contacts.size());
+    }
+    var contacts = new long[size];
+    var contactTimes = new long[size];
+    var n = 0;
+    for (var chunk : chunks) {
+      for (var entry : chunk.contacts.long2LongEntrySet()) {
+        contacts[n] = entry.getLongKey();
+        contactTimes[n++] = entry.getLongValue();
+      }
+    }
+    LongArrays.parallelRadixSort(contacts, contactTimes);
+    // Keep the latest time of each contact, which is last after sorting.
+    n = 0;
+    for (int i = 0; i < size; i++) {
+      if (i + 1 == size || contacts[i] != contacts[i + 1]) {
+        contacts[n] = contacts[i];
+        contactTimes[n++] = contactTimes[i];
+      }
+    }
+    return new ContactFileParser(lines, Arrays.copyOf(contacts, n), Arrays.copyOf(contactTimes, n));
+  }
+
+  // Returns the number of contacts in the file, including repeated contacts and self-contacts.
+  public long parsedEdges() {
+    return parsedEdges;
+  }
+
+  // Users are renumbered from 0 in order of their id in the file, which is kept as their label.
+  public ContactNetwork toContactNetwork(String id, long referenceTime) {
+    var labels = labels();
+    var sources = new int[contacts.length];
+    var targets = new int[contacts.length];
+    var times = new long[contacts.length];
+    // Newest contact time = reference time.
+    var offset = Math.subtractExact(referenceTime, Arrays.stream(contactTimes).max().orElse(0));
+    for (int i = 0; i < contacts.length; i++) {
+      sources[i] = Arrays.binarySearch(labels, (int) (contacts[i] >>> 32));
+      targets[i] = Arrays.binarySearch(labels, (int) contacts[i]);
+      times[i] = Math.addExact(contactTimes[i], offset);
+    }
+    return CompactContactNetwork.of(id, labels.length, sources, targets, times).withLabels(labels);
+  }
+
+  private int[] labels() {
+    var labels = new int[2 * contacts.length];
+    for (int i = 0; i < contacts.length; i++) {
+      labels[2 * i] = (int) (contacts[i] >>> 32);
+      labels[2 * i + 1] = (int) contacts[i];
+    }
+    IntArrays.parallelRadixSort(labels);
+    var n = 0;
+    for (int i = 0; i < labels.length; i++) {
+      if (i == 0 || labels[i] != labels[i - 1]) {
+        labels[n++] = labels[i];
+      }
+    }
+    return Arrays.copyOf(labels, n);
+  }
+
+  static int chunks(long size) {
+    return (int) Math.ceilDiv(size, CHUNK_SIZE);
+  }
+
+  static <T extends ContactConsumer> T parseChunk(
+      FileChannel channel, long size, int chunk, Delimiter delimiter, T consumer) {
+    var start = chunk * CHUNK_SIZE;
+    var end = Math.min(size, start + CHUNK_SIZE);
+    // Map the byte before the chunk to tell if it starts with a line.
+    var from = Math.max(0, start - 1);
+    var to = Math.min(size, end + MAX_LINE_LENGTH);
+    var buffer = map(channel, from, to);
+    var limit = (int) (end - from);
+    var i = 0;
+    if (start > 0) {
+      while (i < buffer.limit() && buffer.get(i) != '\n') {
+        i++;
+      }
+      i++;
+    }
+    var fields = new long[3];
+    while (i < limit) {
+      var lineStart = i;
+      while (i < buffer.limit() && buffer.get(i) != '\n') {
+        i++;
+      }
+      if (i == buffer.limit() && to < size) {
+        throw new IllegalStateException(
+            "Line at byte %s is longer than %s bytes".formatted(from + lineStart, MAX_LINE_LENGTH));
+      }
+      var lineEnd = i > lineStart && buffer.get(i - 1) == '\r' ? i - 1 : i;
+      i++;
+      if (isBlank(buffer, lineStart, lineEnd)) {
+        continue;
+      }
+      if (!parseFields(buffer, lineStart, lineEnd, delimiter, fields)) {
+        throw new IllegalArgumentException(
+            "Line at byte %s must start with a time and two ids separated by '%s'"
+                .formatted(from + lineStart, delimiter));
+      }
+      consumer.accept(fields[0], Math.toIntExact(fields[1]), Math.toIntExact(fields[2]));
+    }
+    return consumer;
+  }
+
+  // Returns whether the line starts with the fields, as non-negative integers.
+  private static boolean parseFields(
+      ByteBuffer buffer, int from, int to, Delimiter delimiter, long[] fields) {
+    var i = from;
+    for (int n = 0; n < fields.length; n++) {
+      if (n > 0) {
+        var next = delimiter.skip(buffer, i, to);
+        if (next == i) {
+          return false;
+        }
+        i = next;
+      }
+      var start = i;
+      var value = 0L;
+      byte b;
+      while (i < to && (b = buffer.get(i)) >= '0' && b <= '9') {
+        value = Math.addExact(Math.multiplyExact(value, 10), b - '0');
+        i++;
+      }
+      if (i == start) {
+        return false;
+      }
+      fields[n] = value;
+    }
+    return i == to || delimiter.skip(buffer, i, to) > i;
+  }
+
+  private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (!isWhitespace(buffer.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // The whitespace characters of regular expressions.
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || (b >= '\t' && b <= '\r');
+  }
+
+  private static MappedByteBuffer map(FileChannel channel, long from, long to) {
+    try {
+      return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // A single character, or a run of whitespace, which is written as the regular expression \s+.
+  static final class Delimiter {
+
+    private static final String WHITESPACE = "\\s+";
+
+    private final String value;
+    private final boolean whitespace;
+    private final byte character;
+
+    private Delimiter(String value) {
+      this.value = value;
+      this.whitespace = value.equals(WHITESPACE);
+      this.character = (byte) value.charAt(0);
+    }
+
+    static Delimiter of(String value) {
+      var isCharacter = value.length() == 1 && value.charAt(0) < 0x80;
+      if (!value.equals(WHITESPACE)
+          && (!isCharacter || Character.isDigit(value.charAt(0)) || value.equals("\n"))) {
+        throw new IllegalArgumentException(
+            "Delimiter must be a single character or %s: '%s'".formatted(WHITESPACE, value));
+      }
+      return new Delimiter(value);
+    }
+
+    // Returns the index after the delimiter at the given index, or the index if there is none.
+    int skip(ByteBuffer buffer, int from, int to) {
+      var i = from;
+      if (whitespace) {
+        while (i < to && isWhitespace(buffer.get(i))) {
+          i++;
+        }
+      } else if (i < to && buffer.get(i) == character) {
+        i++;
+      }
+      return i;
+    }
+
+    @Override
+    public String toString() {
+      return value;
+    }
+  }
+
+  interface ContactConsumer {
+
+    void accept(long seconds, int v1, int v2);
+  }
+
+  private static final class Chunk implements ContactConsumer {
+
+    private final Long2LongOpenHashMap contacts;
+    private long lines;
+
+    Chunk() {
+      contacts = new Long2LongOpenHashMap();
+      contacts.defaultReturnValue(Long.MIN_VALUE);
+    }
+
+    @Override
+    public void accept(long seconds, int v1, int v2) {
+      lines++;
+      if (v1 != v2) {
+        // Assumes the contact times are stored in seconds.
+        var contactTime = Math.multiplyExact(seconds, 1000);
+        var contact = ((long) Math.min(v1, v2) << 32) | Math.max(v1, v2);
+        var previous = contacts.put(contact, contactTime);
+        if (previous > contactTime) {
+          contacts.put(contact, previous);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package sharetrace.model.factory;
+
+import java.nio.file.Path;
+import java.util.Map;
+import org.jgrapht.Graph;
+import org.jgrapht.generate.GraphGenerator;
+import sharetrace.Buildable;
+import sharetrace.model.graph.ContactNetwork;
+import sharetrace.model.graph.Graphs;
+import sharetrace.model.graph.MappedContactNetwork;
+import sharetrace.model.graph.TemporalEdge;
+
+// The contact file is ingested into the directory once and then memory-mapped from it until it
+// changes.
+@Buildable
+public record MappedContactNetworkFactory(
+    Path path, String delimiter, Path directory, long memoryBudget, long referenceTime)
+    implements ContactNetworkFactory {
+
+  @Override
+  public String type() {
+    return "Mapped";
+  }
+
+  @Override
+  public GraphGenerator<Integer, TemporalEdge, ?> graphGenerator() {
+    return this::generateGraph;
+  }
+
+  @Override
+  public ContactNetwork getContactNetwork() {
+    // A network that was ingested from another file, or an older version of it, is replaced.
+    var source = MappedContactNetwork.Source.of(path);
+    if (!source.equals(MappedContactNetwork.source(directory))) {
+      new ContactFileIngester(delimiter, memoryBudget).ingest(path, directory);
+    }
+    return MappedContactNetwork.open(directory, IdFactory.newId(), referenceTime);
+  }
+
+  private void generateGraph(Graph<Integer, TemporalEdge> target, Map<String, ?> resultMap) {
+    Graphs.addContacts(target, getContactNetwork());
+  }
+}
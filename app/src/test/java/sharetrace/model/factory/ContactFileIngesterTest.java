@@ -0,0 +1,81 @@
+package sharetrace.model.factory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import sharetrace.model.graph.ContactNetwork;
+import sharetrace.model.graph.MappedContactNetwork;
+
+class ContactFileIngesterTest {
+
+  private static final long REFERENCE_TIME = 1_000_000_000L;
+  private static final String WHITESPACE = "\\s+";
+
+  @TempDir Path directory;
+
+  /*
+   The smallest budget buffers 4096 contacts per run and merges 2 runs at once, so the runs are
+   merged in several passes; the next merges all runs at once; and the largest fits in one run.
+  */
+  @ParameterizedTest
+  @ValueSource(longs = {12_288, 1 << 16, 1 << 24})
+  void ingestsSameNetworkAsParser(long memoryBudget) throws IOException {
+    var path = writeContacts(directory.resolve("contacts.txt"), new Random(memoryBudget));
+    var networkDirectory = directory.resolve("network");
+    new ContactFileIngester(WHITESPACE, memoryBudget).ingest(path, networkDirectory);
+    var network = MappedContactNetwork.open(networkDirectory, "test", REFERENCE_TIME);
+    var parsed = parse(path);
+    assertEquals(Contacts.of(parsed), Contacts.of(network));
+    assertEquals(
+        Contacts.shift(Contacts.parse(path, WHITESPACE), REFERENCE_TIME), Contacts.of(network));
+    assertEquals(parsed.nodes(), network.nodes());
+    try (var files = Files.list(networkDirectory)) {
+      // Only the metadata and a partition remain once the runs are deleted.
+      assertEquals(2, files.count());
+    }
+  }
+
+  @Test
+  void reingestsChangedFile() throws IOException {
+    var path = writeContacts(directory.resolve("contacts.txt"), new Random(1));
+    var networkDirectory = directory.resolve("network");
+    var factory =
+        new MappedContactNetworkFactory(
+            path, WHITESPACE, networkDirectory, 1 << 16, REFERENCE_TIME);
+    assertNull(MappedContactNetwork.source(networkDirectory));
+    assertEquals(Contacts.of(parse(path)), Contacts.of(factory.getContactNetwork()));
+    var source = MappedContactNetwork.Source.of(path);
+    assertEquals(source, MappedContactNetwork.source(networkDirectory));
+    writeContacts(path, new Random(2));
+    // The file may be rewritten within the resolution of its modification time.
+    Files.setLastModifiedTime(path, FileTime.fromMillis(source.lastModified() + 1_000));
+    assertEquals(Contacts.of(parse(path)), Contacts.of(factory.getContactNetwork()));
+    assertEquals(
+        MappedContactNetwork.Source.of(path), MappedContactNetwork.source(networkDirectory));
+  }
+
+  private static ContactNetwork parse(Path path) {
+    return ContactFileParser.parse(path, WHITESPACE).toContactNetwork("test", REFERENCE_TIME);
+  }
+
+  // Few users so that the same contacts are in many runs, and no trailing newline.
+  private static Path writeContacts(Path path, Random random) throws IOException {
+    try (var writer = Files.newBufferedWriter(path)) {
+      for (int i = 0; i < 60_000; i++) {
+        var seconds = random.nextInt(1_000_000);
+        writer.write("%d\t%d\t%d\n".formatted(seconds, random.nextInt(300), random.nextInt(300)));
+      }
+      writer.write("1000000\t0\t1");
+    }
+    return path;
+  }
+}
@@ -0,0 +1,108 @@
+package sharetrace.model.factory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import sharetrace.model.graph.ContactNetwork;
+
+class ContactFileParserTest {
+
+  private static final long REFERENCE_TIME = 1_000_000_000L;
+  private static final String WHITESPACE = "\\s+";
+
+  @TempDir Path directory;
+
+  @Test
+  void parsesFileWithoutTrailingNewline() throws IOException {
+    var path = directory.resolve("contacts.txt");
+    Files.writeString(path, "10\t1\t2\n\n20  2 1\r\n5 3 3\n7\t4\t1\t3B 9\n \t\n30\t4\t1");
+    var parser = ContactFileParser.parse(path, WHITESPACE);
+    assertEquals(5, parser.parsedEdges());
+    var network = parser.toContactNetwork("test", REFERENCE_TIME);
+    assertEquals(3, network.nodes());
+    assertParsed(path, WHITESPACE, network);
+  }
+
+  @Test
+  void parsesFileWithCharacterDelimiter() throws IOException {
+    var path = directory.resolve("contacts.txt");
+    Files.writeString(path, "10,1,2\n20,2,1,3B\n");
+    var parser = ContactFileParser.parse(path, ",");
+    assertEquals(2, parser.parsedEdges());
+    assertParsed(path, ",", parser.toContactNetwork("test", REFERENCE_TIME));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"20 3", "20 3 ", "20 -3 4", "20 3 4x", "2.5 3 4", " 20 3 4", "20,3,4"})
+  void rejectsLineWithoutTimeAndTwoIds(String line) throws IOException {
+    var path = directory.resolve("contacts.txt");
+    Files.writeString(path, "10 1 2\n" + line + "\n30 1 2\n");
+    assertThrows(IllegalArgumentException.class, () -> ContactFileParser.parse(path, WHITESPACE));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "\\s*", "::", "1", "\n"})
+  void rejectsUnsupportedDelimiter(String delimiter) throws IOException {
+    var path = directory.resolve("contacts.txt");
+    Files.writeString(path, "10 1 2\n");
+    assertThrows(IllegalArgumentException.class, () -> ContactFileParser.parse(path, delimiter));
+  }
+
+  /*
+   Places a line break at the given offset from the end of the first chunk: before it, so that the
+   next line crosses into the second chunk; at its last byte, so that the next line starts the
+   second chunk; or after it, so that the line that crosses into the second chunk ends there.
+  */
+  @ParameterizedTest
+  @ValueSource(ints = {-9, -2, -1, 0, 1})
+  void parsesLinesAcrossChunkBoundaries(int offset) throws IOException {
+    var path = directory.resolve("contacts.txt");
+    var random = new Random(offset);
+    var lines = 0L;
+    try (var writer = Files.newBufferedWriter(path)) {
+      var size = 0L;
+      var lineBreak = ContactFileParser.CHUNK_SIZE - 1 + offset;
+      while (size < lineBreak - 64) {
+        size += writeLine(writer, random);
+        lines++;
+      }
+      // Blank lines are ignored, so a line of spaces moves the line break to where it is needed.
+      writer.write(" ".repeat((int) (lineBreak - size)) + "\n");
+      for (int i = 0; i < 100_000; i++) {
+        writeLine(writer, random);
+        lines++;
+      }
+      writer.write("123 4 5");
+      lines++;
+    }
+    var parser = ContactFileParser.parse(path, WHITESPACE);
+    assertEquals(lines, parser.parsedEdges());
+    assertParsed(path, WHITESPACE, parser.toContactNetwork("test", REFERENCE_TIME));
+  }
+
+  // Few users so that contacts repeat and some are self-contacts.
+  private static int writeLine(Writer writer, Random random) throws IOException {
+    var line =
+        "%d\t%d\t%d\n"
+            .formatted(random.nextInt(1_000_000), random.nextInt(2_000), random.nextInt(2_000));
+    writer.write(line);
+    return line.length();
+  }
+
+  private static void assertParsed(Path path, String delimiter, ContactNetwork network)
+      throws IOException {
+    Long2LongMap expected = Contacts.shift(Contacts.parse(path, delimiter), REFERENCE_TIME);
+    assertEquals(expected, Contacts.of(network));
+    assertEquals(Contacts.users(expected), network.nodes());
+  }
+}
@@ -0,0 +1,82 @@
+package sharetrace.model.factory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.LongStream;
+import sharetrace.model.graph.ContactNetwork;
+
+final class Contacts {
+
+  private Contacts() {}
+
+  // Returns the latest time of each contact in the file, keyed by the ordered pair of user ids.
+  public static Long2LongMap parse(Path path, String delimiter) throws IOException {
+    var contacts = new Long2LongOpenHashMap();
+    try (BufferedReader reader = Files.newBufferedReader(path)) {
+      for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (!line.isBlank()) {
+          var fields = line.split(delimiter, 4);
+          var v1 = Long.parseLong(fields[1]);
+          var v2 = Long.parseLong(fields[2]);
+          if (v1 != v2) {
+            contacts.mergeLong(key(v1, v2), Long.parseLong(fields[0]) * 1000, Math::max);
+          }
+        }
+      }
+    }
+    return contacts;
+  }
+
+  // Returns the latest contact times shifted so that the newest one is the reference time.
+  public static Long2LongMap shift(Long2LongMap contacts, long referenceTime) {
+    var offset = referenceTime - contacts.values().longStream().max().orElse(0);
+    var shifted = new Long2LongOpenHashMap();
+    for (var entry : contacts.long2LongEntrySet()) {
+      shifted.put(entry.getLongKey(), entry.getLongValue() + offset);
+    }
+    return shifted;
+  }
+
+  // Checks that each contact is in the rows of both users and that rows are in order of time.
+  public static Long2LongMap of(ContactNetwork network) {
+    var labels = network.labels();
+    var contacts = new Long2LongOpenHashMap();
+    var entries = 0L;
+    for (int user = 0; user < network.nodes(); user++) {
+      for (int i = 0; i < network.degree(user); i++) {
+        var contact = network.contact(user, i);
+        var contactTime = network.contactTime(user, i);
+        if (i > 0) {
+          assertTrue(network.contactTime(user, i - 1) <= contactTime);
+        }
+        var key = key(labels[user], labels[contact]);
+        assertTrue(!contacts.containsKey(key) || contacts.get(key) == contactTime);
+        contacts.put(key, contactTime);
+        entries++;
+      }
+    }
+    assertEquals(2L * contacts.size(), entries);
+    assertEquals(contacts.size(), network.edges());
+    return contacts;
+  }
+
+  public static long users(Long2LongMap contacts) {
+    return contacts
+        .keySet()
+        .longStream()
+        .flatMap(contact -> LongStream.of(contact >>> 32, (int) contact))
+        .distinct()
+        .count();
+  }
+
+  private static long key(long v1, long v2) {
+    return (Math.min(v1, v2) << 32) | Math.max(v1, v2);
+  }
+}
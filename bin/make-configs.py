@@ -97,6 +97,20 @@ def runtime_experiment_configs():
     yield from merge_configs(network_configs(runtime_network_sizes()), random_configs)
 
 
+def engine_experiment_configs():
+    random_configs = [
+        {
+            "score_value_random": "uniform",
+            "score_time_random": "uniform",
+            "contact_time_random": "uniform",
+        }
+    ]
+    engines = [{"engine": engine} for engine in ["actors", "virtual-threads"]]
+    yield from merge_configs(
+        network_configs([(10_000, 100_000)]), random_configs, engines
+    )
+
+
 def merge_configs(*configs):
     for configs in itertools.product(*configs):
         yield dict(collections.ChainMap(*configs))
@@ -113,6 +127,9 @@ def make_configs(experiment_type, output_path = None):
     elif experiment_type == "runtime-baseline":
         template_values = runtime_baseline_experiment_configs()
         base_filename = "runtime"
+    elif experiment_type == "engine":
+        template_values = engine_experiment_configs()
+        base_filename = "runtime"
     else:
         raise ValueError(f"Invalid experiment type: {experiment_type}")
     template_values = list(template_values)
@@ -126,12 +143,15 @@ def make_configs(experiment_type, output_path = None):
         template = string.Template(f.read())
 
     for values in template_values:
+        values = {"engine": "actors"} | values
         network = values["network_type"]
         qualifier = values["qualifier"]
         sv_random = values["score_value_random"]
         st_random = values["score_time_random"]
         ct_random = values["contact_time_random"]
         filename = f"{experiment_type}_{network}_{qualifier}_{sv_random}_{st_random}_{ct_random}.conf"
+        if experiment_type == "engine":
+            filename = filename.replace(".conf", f"_{values['engine']}.conf")
         with open(f"{base_dir}/{filename}", "w") as f:
             f.write(template.substitute(values))
 
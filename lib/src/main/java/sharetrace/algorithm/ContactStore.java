@@ -1,27 +1,366 @@
 package sharetrace.algorithm;
 
-import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
-import java.util.Collection;
-import java.util.Map;
+import it.unimi.dsi.fastutil.doubles.DoubleArrays;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.ObjectArrays;
+import sharetrace.model.Parameters;
+import sharetrace.model.RiskScore;
 import sharetrace.model.factory.TimeFactory;
+import sharetrace.model.message.RiskScoreMessage;
 
-final class ContactStore extends ExpirableStore<Contact> {
+final class ContactStore extends ExpirableStore {
 
-  private final Map<Integer, Contact> store;
+  private static final int ABSENT = -1;
 
-  public ContactStore(TimeFactory timeFactory) {
+  private final double sendCoefficient;
+  private final double tolerance;
+  private final long timeBuffer;
+  private final TimeFactory timeFactory;
+  private final Int2IntMap slots;
+  private final IntArrayList freeSlots;
+
+  /*
+   Contacts are kept in slots of parallel arrays, and the occupied slots are ordered by contact
+   time. A message is only relevant to a contact whose relevant time bound is after the timestamp
+   of the message, so the relevant contacts form a suffix of the order that is found with a binary
+   search. A tournament tree over the order holds the minimum send threshold and threshold expiry
+   time of each range of contacts, so that only the contacts that a message can be sent to or whose
+   threshold needs to be refreshed are visited. The tree is rebuilt when the order changes.
+  */
+  private int[] ids;
+  private long[] timestamps;
+  private long[] expiryTimes;
+  private long[] relevantTimeBounds;
+  private double[] sendThresholds;
+  private long[] sendThresholdExpiryTimes;
+  private RiskScoreMessage[] buffered;
+  private int[] order;
+  private int capacity;
+  private int size;
+  private int bufferedCount;
+  private int removedFrom;
+  private double[] minSendThresholds;
+  private long[] minSendThresholdExpiryTimes;
+  private int[] positions;
+  private int leaves;
+  private boolean indexed;
+  private long visits;
+  private long skips;
+
+  public ContactStore(Parameters parameters, TimeFactory timeFactory) {
     super(timeFactory);
-    store = new Int2ReferenceOpenHashMap<>();
+    this.sendCoefficient = parameters.sendCoefficient();
+    this.tolerance = parameters.tolerance();
+    this.timeBuffer = parameters.timeBuffer();
+    this.timeFactory = timeFactory;
+    this.slots = new Int2IntOpenHashMap();
+    this.slots.defaultReturnValue(ABSENT);
+    this.freeSlots = new IntArrayList();
+    this.ids = IntArrays.EMPTY_ARRAY;
+    this.timestamps = LongArrays.EMPTY_ARRAY;
+    this.expiryTimes = LongArrays.EMPTY_ARRAY;
+    this.relevantTimeBounds = LongArrays.EMPTY_ARRAY;
+    this.sendThresholds = DoubleArrays.EMPTY_ARRAY;
+    this.sendThresholdExpiryTimes = LongArrays.EMPTY_ARRAY;
+    this.buffered = new RiskScoreMessage[0];
+    this.order = IntArrays.EMPTY_ARRAY;
+    this.removedFrom = Integer.MAX_VALUE;
+    this.minSendThresholds = DoubleArrays.EMPTY_ARRAY;
+    this.minSendThresholdExpiryTimes = LongArrays.EMPTY_ARRAY;
+    this.positions = IntArrays.EMPTY_ARRAY;
+  }
+
+  public int add(int id, long timestamp, long expiryTime) {
+    var slot = slots.get(id);
+    if (slot == ABSENT) {
+      slot = newSlot();
+      slots.put(id, slot);
+      ids[slot] = id;
+      setContact(slot, timestamp, expiryTime);
+      insert(slot);
+      resetThreshold(slot);
+    } else if (timestamp > timestamps[slot]) {
+      // Keep the most recent contact, but retain the send threshold and buffered message.
+      unorder(slot);
+      setContact(slot, timestamp, expiryTime);
+      insert(slot);
+    }
+    return slot;
+  }
+
+  public void ensureCapacity(int contacts) {
+    var available = freeSlots.size() + ids.length - capacity;
+    var required = contacts - size();
+    if (required > available) {
+      grow(ids.length + required - available);
+    }
+  }
+
+  public void apply(RiskScoreMessage message, RiskScoreMessageStore scores) {
+    if (!indexed) {
+      buildIndex();
+    }
+    var visited = 0;
+    var from = upperBound(message.timestamp());
+    for (int i = nextEligible(from, message); i < size; i = nextEligible(i + 1, message)) {
+      apply(order[i], message, scores);
+      visited++;
+    }
+    visits += visited;
+    skips += size - visited;
+  }
+
+  public void apply(int slot, RiskScoreMessageStore scores) {
+    apply(slot, maxRelevantMessage(slot, scores), scores);
+  }
+
+  public void apply(int slot, RiskScoreMessage message, RiskScoreMessageStore scores) {
+    refreshThreshold(slot, scores);
+    if (isApplicable(slot, message)) {
+      setThreshold(slot, message);
+      if (buffered[slot] == null) {
+        bufferedCount++;
+      }
+      buffered[slot] = message;
+    }
+  }
+
+  public void flush(Outbox outbox) {
+    for (int i = 0; i < size; i++) {
+      var slot = order[i];
+      if (buffered[slot] != null) {
+        outbox.send(ids[slot], buffered[slot]);
+        buffered[slot] = null;
+      }
+    }
+    bufferedCount = 0;
+  }
+
+  public int id(int slot) {
+    return ids[slot];
+  }
+
+  public long timestamp(int slot) {
+    return timestamps[slot];
+  }
+
+  public int bufferedCount() {
+    return bufferedCount;
+  }
+
+  public long visits() {
+    return visits;
+  }
+
+  public long skips() {
+    return skips;
+  }
+
+  @Override
+  public int size() {
+    return slots.size();
+  }
+
+  @Override
+  protected boolean isCurrent(int id, long expiryTime) {
+    var slot = slots.get(id);
+    return slot != ABSENT && expiryTimes[slot] == expiryTime;
   }
 
   @Override
-  public void add(Contact contact) {
-    store.merge(contact.id(), contact, Contact::merge);
-    super.add(contact);
+  protected void remove(int id) {
+    // Defer updating the order until all expired contacts are removed.
+    var slot = slots.remove(id);
+    removedFrom = Math.min(removedFrom, lowerBound(relevantTimeBounds[slot]));
+    if (buffered[slot] != null) {
+      buffered[slot] = null;
+      bufferedCount--;
+    }
+    freeSlots.add(slot);
   }
 
   @Override
-  protected Collection<Contact> values() {
-    return store.values();
+  protected void onRemoved() {
+    if (removedFrom < size) {
+      var newSize = removedFrom;
+      for (int i = removedFrom; i < size; i++) {
+        if (isOccupied(order[i])) {
+          order[newSize++] = order[i];
+        }
+      }
+      size = newSize;
+      removedFrom = Integer.MAX_VALUE;
+      indexed = false;
+    }
+  }
+
+  private void setContact(int slot, long timestamp, long expiryTime) {
+    timestamps[slot] = timestamp;
+    expiryTimes[slot] = expiryTime;
+    relevantTimeBounds[slot] = timestamp + timeBuffer;
+    track(ids[slot], expiryTime);
+  }
+
+  private boolean isApplicable(int slot, RiskScoreMessage message) {
+    return message.value() > sendThresholds[slot] && message.timestamp() < relevantTimeBounds[slot];
+  }
+
+  private void refreshThreshold(int slot, RiskScoreMessageStore scores) {
+    /*
+     If this contact's send threshold has been reset, then either
+       1. no messages have been sent to this contact; or
+       2. the threshold has expired and, the cache was empty upon previously refreshing.
+     In either case, refreshing the cache before sending the message may result in setting the
+     threshold based on a cached message whose value is at least the value of the message about to
+     be sent. In this situation, the message would not be sent to this contact since messages only
+     with a value *greater* than the threshold are eligible. Considering this in the context of the
+     entire contact network, this would prevent all propagation of messages. A reset threshold never
+     expires, so it is not refreshed.
+    */
+    if (sendThresholdExpiryTimes[slot] < timeFactory.getTime()) {
+      var message = maxRelevantMessage(slot, scores);
+      if (message != RiskScoreMessage.NULL) {
+        setThreshold(slot, message);
+      } else {
+        resetThreshold(slot);
+      }
+    }
+  }
+
+  private RiskScoreMessage maxRelevantMessage(int slot, RiskScoreMessageStore scores) {
+    return scores.max(relevantTimeBounds[slot]);
+  }
+
+  private void setThreshold(int slot, RiskScoreMessage message) {
+    sendThresholds[slot] = message.value() * sendCoefficient + tolerance;
+    sendThresholdExpiryTimes[slot] = message.expiryTime();
+    updateIndex(slot);
+  }
+
+  private void resetThreshold(int slot) {
+    sendThresholds[slot] = RiskScore.MIN.value();
+    sendThresholdExpiryTimes[slot] = Long.MAX_VALUE;
+    updateIndex(slot);
+  }
+
+  private boolean isOccupied(int slot) {
+    return slots.get(ids[slot]) == slot;
+  }
+
+  private void insert(int slot) {
+    var index = upperBound(relevantTimeBounds[slot]);
+    System.arraycopy(order, index, order, index + 1, size - index);
+    order[index] = slot;
+    size++;
+    indexed = false;
+  }
+
+  private void unorder(int slot) {
+    var index = lowerBound(relevantTimeBounds[slot]);
+    while (order[index] != slot) {
+      index++;
+    }
+    System.arraycopy(order, index + 1, order, index, size - index - 1);
+    size--;
+    indexed = false;
+  }
+
+  // Returns the first position, at or after the given one, of a contact that may apply the message.
+  private int nextEligible(int from, RiskScoreMessage message) {
+    return from < size
+        ? nextEligible(1, 0, leaves, from, message.value(), timeFactory.getTime())
+        : size;
+  }
+
+  private int nextEligible(int node, int low, int high, int from, double value, long time) {
+    if (high <= from
+        || (minSendThresholds[node] >= value && minSendThresholdExpiryTimes[node] >= time)) {
+      return size;
+    } else if (high - low == 1) {
+      return low;
+    } else {
+      var mid = (low + high) >>> 1;
+      var left = nextEligible(2 * node, low, mid, from, value, time);
+      return left < size ? left : nextEligible(2 * node + 1, mid, high, from, value, time);
+    }
+  }
+
+  private void buildIndex() {
+    leaves = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    if (minSendThresholds.length < 2 * leaves) {
+      minSendThresholds = new double[2 * leaves];
+      minSendThresholdExpiryTimes = new long[2 * leaves];
+    }
+    if (positions.length < ids.length) {
+      positions = new int[ids.length];
+    }
+    for (int i = 0; i < leaves; i++) {
+      var node = leaves + i;
+      if (i < size) {
+        var slot = order[i];
+        positions[slot] = i;
+        minSendThresholds[node] = sendThresholds[slot];
+        minSendThresholdExpiryTimes[node] = sendThresholdExpiryTimes[slot];
+      } else {
+        minSendThresholds[node] = Double.POSITIVE_INFINITY;
+        minSendThresholdExpiryTimes[node] = Long.MAX_VALUE;
+      }
+    }
+    for (int node = leaves - 1; node > 0; node--) {
+      updateNode(node);
+    }
+    indexed = true;
+  }
+
+  private void updateIndex(int slot) {
+    if (indexed) {
+      var node = leaves + positions[slot];
+      minSendThresholds[node] = sendThresholds[slot];
+      minSendThresholdExpiryTimes[node] = sendThresholdExpiryTimes[slot];
+      for (node >>>= 1; node > 0; node >>>= 1) {
+        updateNode(node);
+      }
+    }
+  }
+
+  private void updateNode(int node) {
+    var left = 2 * node;
+    var right = left + 1;
+    minSendThresholds[node] = Math.min(minSendThresholds[left], minSendThresholds[right]);
+    minSendThresholdExpiryTimes[node] =
+        Math.min(minSendThresholdExpiryTimes[left], minSendThresholdExpiryTimes[right]);
+  }
+
+  private int newSlot() {
+    if (!freeSlots.isEmpty()) {
+      return freeSlots.popInt();
+    }
+    if (capacity == ids.length) {
+      grow(capacity + 1);
+    }
+    return capacity++;
+  }
+
+  private void grow(int newCapacity) {
+    ids = IntArrays.grow(ids, newCapacity, capacity);
+    timestamps = LongArrays.grow(timestamps, newCapacity, capacity);
+    expiryTimes = LongArrays.grow(expiryTimes, newCapacity, capacity);
+    relevantTimeBounds = LongArrays.grow(relevantTimeBounds, newCapacity, capacity);
+    sendThresholds = DoubleArrays.grow(sendThresholds, newCapacity, capacity);
+    sendThresholdExpiryTimes = LongArrays.grow(sendThresholdExpiryTimes, newCapacity, capacity);
+    buffered = ObjectArrays.grow(buffered, newCapacity, capacity);
+    order = IntArrays.grow(order, newCapacity, size);
+  }
+
+  private int lowerBound(long time) {
+    return SortedSlots.lowerBound(order, size, relevantTimeBounds, time);
+  }
+
+  private int upperBound(long time) {
+    return SortedSlots.upperBound(order, size, relevantTimeBounds, time);
   }
 }
@@ -0,0 +1,6 @@
+package sharetrace.algorithm;
+
+import sharetrace.model.message.RiskScoreMessage;
+
+// A message that is pending delivery to a user.
+record Delivery(int user, RiskScoreMessage message) {}
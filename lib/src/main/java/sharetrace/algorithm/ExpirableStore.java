@@ -1,39 +1,57 @@
 package sharetrace.algorithm;
 
-import java.util.Collection;
-import java.util.Iterator;
-import sharetrace.model.Expirable;
 import sharetrace.model.factory.TimeFactory;
 
-abstract class ExpirableStore<V extends Expirable> implements Iterable<V> {
+abstract class ExpirableStore {
 
   private final TimeFactory timeFactory;
+  private final ExpiryIndex index;
 
-  private long minExpiryTime;
+  private long refreshes;
+  private long evictions;
 
   public ExpirableStore(TimeFactory timeFactory) {
     this.timeFactory = timeFactory;
-    this.minExpiryTime = Long.MAX_VALUE;
+    this.index = new ExpiryIndex();
   }
 
-  @Override
-  @SuppressWarnings("NullableProblems")
-  public Iterator<V> iterator() {
-    return values().iterator();
+  public abstract int size();
+
+  public void refresh() {
+    var currentTime = timeFactory.getTime();
+    if (index.minExpiryTime() < currentTime) {
+      do {
+        var key = index.minKey();
+        if (isCurrent(key, index.minExpiryTime())) {
+          remove(key);
+          evictions++;
+        }
+        index.removeMin();
+      } while (index.minExpiryTime() < currentTime);
+      onRemoved();
+      refreshes++;
+    }
   }
 
-  public void add(V value) {
-    minExpiryTime = Math.min(minExpiryTime, value.expiryTime());
+  public long refreshes() {
+    return refreshes;
   }
 
-  public void refresh() {
-    var currentTime = timeFactory.getTime();
-    if (minExpiryTime < currentTime) {
-      values().removeIf(value -> value.isExpired(currentTime));
-      minExpiryTime =
-          values().stream().mapToLong(Expirable::expiryTime).min().orElse(Long.MAX_VALUE);
+  public long evictions() {
+    return evictions;
+  }
+
+  protected void track(int key, long expiryTime) {
+    index.add(key, expiryTime);
+    // Entries of removed or updated values are skipped lazily, so compact once they dominate.
+    if (index.size() > 2 * size() + 16) {
+      index.retainIf(this::isCurrent);
     }
   }
 
-  protected abstract Collection<V> values();
+  protected abstract boolean isCurrent(int key, long expiryTime);
+
+  protected abstract void remove(int key);
+
+  protected void onRemoved() {}
 }
@@ -0,0 +1,105 @@
+package sharetrace.algorithm;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+final class ExpiryIndex {
+
+  private long[] expiryTimes;
+  private int[] keys;
+  private int size;
+
+  public ExpiryIndex() {
+    expiryTimes = LongArrays.EMPTY_ARRAY;
+    keys = IntArrays.EMPTY_ARRAY;
+  }
+
+  public void add(int key, long expiryTime) {
+    if (size == keys.length) {
+      expiryTimes = LongArrays.grow(expiryTimes, size + 1, size);
+      keys = IntArrays.grow(keys, size + 1, size);
+    }
+    expiryTimes[size] = expiryTime;
+    keys[size] = key;
+    siftUp(size++);
+  }
+
+  public long minExpiryTime() {
+    return size == 0 ? Long.MAX_VALUE : expiryTimes[0];
+  }
+
+  public int minKey() {
+    return keys[0];
+  }
+
+  public void removeMin() {
+    size--;
+    if (size > 0) {
+      swap(0, size);
+      siftDown(0);
+    }
+  }
+
+  public void retainIf(EntryPredicate predicate) {
+    var newSize = 0;
+    for (int i = 0; i < size; i++) {
+      if (predicate.test(keys[i], expiryTimes[i])) {
+        expiryTimes[newSize] = expiryTimes[i];
+        keys[newSize++] = keys[i];
+      }
+    }
+    size = newSize;
+    for (int i = (size >>> 1) - 1; i >= 0; i--) {
+      siftDown(i);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      var parent = (i - 1) >>> 1;
+      if (expiryTimes[parent] <= expiryTimes[i]) {
+        break;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i) {
+    while (true) {
+      var min = i;
+      var left = 2 * i + 1;
+      var right = left + 1;
+      if (left < size && expiryTimes[left] < expiryTimes[min]) {
+        min = left;
+      }
+      if (right < size && expiryTimes[right] < expiryTimes[min]) {
+        min = right;
+      }
+      if (min == i) {
+        break;
+      }
+      swap(i, min);
+      i = min;
+    }
+  }
+
+  private void swap(int i, int j) {
+    var expiryTime = expiryTimes[i];
+    expiryTimes[i] = expiryTimes[j];
+    expiryTimes[j] = expiryTime;
+    var key = keys[i];
+    keys[i] = keys[j];
+    keys[j] = key;
+  }
+
+  @FunctionalInterface
+  public interface EntryPredicate {
+
+    boolean test(int key, long expiryTime);
+  }
+}
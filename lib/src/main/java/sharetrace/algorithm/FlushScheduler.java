@@ -0,0 +1,86 @@
+package sharetrace.algorithm;
+
+import akka.actor.typed.ActorRef;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import sharetrace.model.message.FlushTimeoutMessage;
+import sharetrace.model.message.UserMessage;
+
+/*
+ Schedules flushes for users that have buffered messages, instead of each user running a periodic
+ timer. Since every flush has the same delay, flushes are due in the order they are scheduled, so a
+ queue suffices. The queue is polled periodically by the monitor. A user that flushes before its
+ flush is due cancels it, and cancelled flushes are dropped from the queue once they are due.
+*/
+final class FlushScheduler {
+
+  private final Queue<Flush> queue;
+  private final long delay;
+  private final LongAdder scheduled;
+  private final LongAdder cancelled;
+
+  private long ticks;
+  private long idleTicks;
+
+  public FlushScheduler(Duration delay) {
+    this.queue = new ConcurrentLinkedQueue<>();
+    this.delay = delay.toNanos();
+    this.scheduled = new LongAdder();
+    this.cancelled = new LongAdder();
+  }
+
+  public Flush schedule(ActorRef<UserMessage> user) {
+    var flush = new Flush(user, System.nanoTime() + delay);
+    queue.add(flush);
+    scheduled.increment();
+    return flush;
+  }
+
+  public void tick() {
+    var time = System.nanoTime();
+    var flushed = false;
+    for (var flush = queue.peek(); flush != null && flush.time <= time; flush = queue.peek()) {
+      queue.poll();
+      if (flush.done.compareAndSet(false, true)) {
+        flush.user.tell(FlushTimeoutMessage.INSTANCE);
+        flushed = true;
+      }
+    }
+    ticks++;
+    if (!flushed) {
+      idleTicks++;
+    }
+  }
+
+  public void addMetrics(Metrics metrics) {
+    metrics.add("FlushesScheduled", scheduled.sum());
+    metrics.add("FlushesCancelled", cancelled.sum());
+    metrics.add("FlushTicks", ticks);
+    metrics.add("IdleFlushTicks", idleTicks);
+  }
+
+  public final class Flush {
+
+    private final ActorRef<UserMessage> user;
+    private final long time;
+    private final AtomicBoolean done;
+
+    private Flush(ActorRef<UserMessage> user, long time) {
+      this.user = user;
+      this.time = time;
+      this.done = new AtomicBoolean();
+    }
+
+    // Returns false if the flush timeout was already sent.
+    public boolean cancel() {
+      var cancel = done.compareAndSet(false, true);
+      if (cancel) {
+        cancelled.increment();
+      }
+      return cancel;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package sharetrace.algorithm;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.ChildFailed;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.Terminated;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import com.typesafe.config.ConfigFactory;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import sharetrace.logging.ExecutionProperties;
+import sharetrace.model.message.RunMessage;
+
+// The root of an actor system, which spawns a monitor for each run so that runs can share it.
+final class Guardian extends AbstractBehavior<Guardian.Command> {
+
+  private final DispatcherSelector props;
+  private final Map<ActorRef<?>, CompletableFuture<Void>> running;
+
+  private long runs;
+
+  private Guardian(ActorContext<Command> context) {
+    super(context);
+    this.props = DispatcherSelector.fromConfig("sharetrace.monitor.dispatcher");
+    this.running = new Object2ObjectOpenHashMap<>();
+  }
+
+  // Reusing the system keeps its dispatcher threads and the compiled user code warm across runs.
+  public static ActorSystem<Command> shared() {
+    return Shared.SYSTEM;
+  }
+
+  public static Behavior<Command> of() {
+    return Behaviors.setup(Guardian::new);
+  }
+
+  @Override
+  public Receive<Command> createReceive() {
+    return newReceiveBuilder()
+        .onMessage(Run.class, this::handle)
+        .onSignal(Terminated.class, this::handle)
+        .build();
+  }
+
+  private Behavior<Command> handle(Run run) {
+    var p = run.properties();
+    var behavior = Monitor.of(p.context(), p.parameters(), p.scoreFactory(), p.network());
+    var monitor = getContext().spawn(behavior, "Monitor-" + runs++, props);
+    getContext().watch(monitor);
+    running.put(monitor, run.done());
+    monitor.tell(RunMessage.INSTANCE);
+    return this;
+  }
+
+  // A monitor fails if the run fails, so the run completes with the cause.
+  private Behavior<Command> handle(Terminated terminated) {
+    var done = running.remove(terminated.getRef());
+    if (terminated instanceof ChildFailed failed) {
+      done.completeExceptionally(failed.getCause());
+    } else {
+      done.complete(null);
+    }
+    return this;
+  }
+
+  public interface Command {}
+
+  public record Run(ExecutionProperties properties, CompletableFuture<Void> done)
+      implements Command {}
+
+  private static final class Shared {
+
+    // Daemon threads let the JVM exit after the last run without terminating the system.
+    private static final ActorSystem<Command> SYSTEM =
+        ActorSystem.create(
+            of(),
+            "RiskPropagation",
+            ConfigFactory.parseString("akka.daemonic = on").withFallback(ConfigFactory.load()));
+  }
+}
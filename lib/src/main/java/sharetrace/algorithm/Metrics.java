@@ -0,0 +1,25 @@
+package sharetrace.algorithm;
+
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+final class Metrics {
+
+  private final Map<String, LongAdder> metrics;
+
+  public Metrics() {
+    metrics = new ConcurrentHashMap<>();
+  }
+
+  public void add(String name, long value) {
+    metrics.computeIfAbsent(name, x -> new LongAdder()).add(value);
+  }
+
+  public Map<String, Long> snapshot() {
+    var snapshot = new Object2LongOpenHashMap<String>();
+    metrics.forEach((name, value) -> snapshot.put(name, value.sum()));
+    return snapshot;
+  }
+}
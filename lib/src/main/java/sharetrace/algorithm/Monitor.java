@@ -2,15 +2,18 @@ package sharetrace.algorithm;
 
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
+import akka.actor.typed.ChildFailed;
 import akka.actor.typed.DispatcherSelector;
 import akka.actor.typed.PostStop;
+import akka.actor.typed.Terminated;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
 import akka.actor.typed.javadsl.TimerScheduler;
-import org.slf4j.MDC;
+import java.time.Duration;
 import sharetrace.logging.event.Event;
+import sharetrace.logging.event.MetricsEvent;
 import sharetrace.logging.event.lifecycle.CreateUsersEnd;
 import sharetrace.logging.event.lifecycle.CreateUsersStart;
 import sharetrace.logging.event.lifecycle.RiskPropagationEnd;
@@ -23,21 +26,39 @@ import sharetrace.model.Context;
 import sharetrace.model.Parameters;
 import sharetrace.model.factory.RiskScoreFactory;
 import sharetrace.model.graph.ContactNetwork;
-import sharetrace.model.message.ContactMessage;
+import sharetrace.model.message.BatchMessage;
+import sharetrace.model.message.ContactsMessage;
+import sharetrace.model.message.FlushTickMessage;
 import sharetrace.model.message.IdleTimeoutMessage;
 import sharetrace.model.message.MonitorMessage;
+import sharetrace.model.message.ProgressTimeoutMessage;
+import sharetrace.model.message.QuiescenceMessage;
 import sharetrace.model.message.RiskScoreMessage;
 import sharetrace.model.message.RunMessage;
+import sharetrace.model.message.ShardMessage;
+import sharetrace.model.message.UserFailedMessage;
 import sharetrace.model.message.UserMessage;
-import sharetrace.model.message.UserUpdatedMessage;
+import sharetrace.model.message.UsersCreatedMessage;
 
 final class Monitor extends AbstractBehavior<MonitorMessage> {
 
+  private static final int FLUSH_TICKS_PER_TIMEOUT = 10;
+  private static final Duration MIN_TICK_INTERVAL = Duration.ofMillis(1);
+
   private final Context context;
   private final Parameters parameters;
   private final RiskScoreFactory scoreFactory;
   private final ContactNetwork network;
   private final TimerScheduler<MonitorMessage> timers;
+  private final Metrics metrics;
+  private final WorkCounter work;
+  private final Progress progress;
+  private final FlushScheduler flushes;
+  private final int shards;
+  private final boolean batched;
+
+  private ActorRef<UserMessage>[] users;
+  private int pendingGroups;
 
   private Monitor(
       ActorContext<MonitorMessage> actorContext,
@@ -52,6 +73,12 @@ final class Monitor extends AbstractBehavior<MonitorMessage> {
     this.scoreFactory = scoreFactory;
     this.network = network;
     this.timers = timers;
+    this.metrics = new Metrics();
+    this.work = new WorkCounter();
+    this.progress = new Progress();
+    this.flushes = new FlushScheduler(parameters.flushTimeout());
+    this.shards = context.shards();
+    this.batched = shards > 0 && context.batch();
   }
 
   public static Behavior<MonitorMessage> of(
@@ -60,22 +87,23 @@ final class Monitor extends AbstractBehavior<MonitorMessage> {
       RiskScoreFactory scoreFactory,
       ContactNetwork network) {
     return Behaviors.setup(
-        actorContext -> {
-          var monitor =
-              Behaviors.<MonitorMessage>withTimers(
-                  timers ->
-                      new Monitor(
-                          actorContext, context, parameters, scoreFactory, network, timers));
-          return Behaviors.withMdc(MonitorMessage.class, context.mdc(), monitor);
-        });
+        actorContext ->
+            Behaviors.withTimers(
+                timers ->
+                    new Monitor(actorContext, context, parameters, scoreFactory, network, timers)));
   }
 
   @Override
   public Receive<MonitorMessage> createReceive() {
     return newReceiveBuilder()
         .onMessage(RunMessage.class, this::handle)
-        .onMessage(UserUpdatedMessage.class, this::handle)
+        .onMessage(UsersCreatedMessage.class, this::handle)
+        .onMessage(FlushTickMessage.class, this::handle)
+        .onMessage(ProgressTimeoutMessage.class, this::handle)
+        .onMessage(QuiescenceMessage.class, this::handle)
         .onMessage(IdleTimeoutMessage.class, this::handle)
+        .onMessage(UserFailedMessage.class, this::handle)
+        .onSignal(Terminated.class, this::handle)
         .onSignal(PostStop.class, this::handle)
         .build();
   }
@@ -83,54 +111,121 @@ final class Monitor extends AbstractBehavior<MonitorMessage> {
   @SuppressWarnings("unused")
   private Behavior<MonitorMessage> handle(RunMessage message) {
     logEvent(new RiskPropagationStart());
-    var users = createUsers();
-    sendContacts(users);
-    sendRiskScores(users);
-    startIdleTimeoutTimer();
-    return this;
+    createUsers();
+    // An empty network has no groups to wait for.
+    return pendingGroups > 0 ? this : onUsersCreated();
   }
 
   @SuppressWarnings("unchecked")
-  private ActorRef<UserMessage>[] createUsers() {
+  private void createUsers() {
     logEvent(new CreateUsersStart());
-    var users = new ActorRef[network.vertexSet().size()];
+    var n = network.nodes();
+    users = new ActorRef[n];
+    var sharded = shards > 0;
+    var actors = sharded ? Math.min(shards, n) : n;
+    // Parenting the user actors in groups keeps the number of children per actor near sqrt(actors).
+    var groups = (int) Math.ceil(Math.sqrt(actors));
+    var monitoring =
+        new Monitoring(getContext().getSelf(), users, metrics, work, progress, flushes);
     var props = DispatcherSelector.fromConfig("sharetrace.user.dispatcher");
-    for (int i : network.vertexSet()) {
-      var behavior = User.of(i, context, parameters, getContext().getSelf());
-      users[i] = getContext().spawn(behavior, "User-" + i, props);
-      getContext().watch(users[i]);
+    for (int g = 0; g < groups; g++) {
+      int from = (int) ((long) actors * g / groups);
+      int to = (int) ((long) actors * (g + 1) / groups);
+      var behavior =
+          UserGroup.of(from, to, actors, sharded, batched, context, parameters, monitoring);
+      var group = getContext().spawn(behavior, "Users-" + g, props);
+      getContext().watch(group);
     }
+    pendingGroups = groups;
+  }
+
+  @SuppressWarnings("unused")
+  private Behavior<MonitorMessage> handle(UsersCreatedMessage message) {
+    return --pendingGroups > 0 ? this : onUsersCreated();
+  }
+
+  private Behavior<MonitorMessage> onUsersCreated() {
     logEvent(new CreateUsersEnd());
-    return users;
+    // Count all messages before sending any so that users cannot complete the work prematurely.
+    work.add(2L * network.nodes());
+    sendContacts(users);
+    sendRiskScores(users);
+    startIdleTimeoutTimer();
+    timers.startTimerAtFixedRate(ProgressTimeoutMessage.INSTANCE, parameters.progressInterval());
+    timers.startTimerAtFixedRate(FlushTickMessage.INSTANCE, flushTickInterval());
+    return work.isDone() ? Behaviors.stopped() : this;
   }
 
   private void sendContacts(ActorRef<UserMessage>[] users) {
     logEvent(new SendContactsStart());
     var expiry = parameters.contactExpiry();
-    for (var edge : network.edgeSet()) {
-      int i = network.getEdgeSource(edge);
-      int j = network.getEdgeTarget(edge);
-      users[i].tell(ContactMessage.fromExpiry(users[j], j, edge.getTime(), expiry));
-      users[j].tell(ContactMessage.fromExpiry(users[i], i, edge.getTime(), expiry));
+    for (int i = 0; i < network.nodes(); i++) {
+      users[i].tell(new ContactsMessage(i, network, expiry));
     }
     logEvent(new SendContactsEnd());
   }
 
   private void sendRiskScores(ActorRef<UserMessage>[] users) {
     logEvent(new SendRiskScoresStart());
-    for (int i : network.vertexSet()) {
-      var score = scoreFactory.getRiskScore(i);
-      users[i].tell(RiskScoreMessage.ofOrigin(score, i));
+    if (batched) {
+      sendRiskScoreBatches(users);
+    } else {
+      for (int i = 0; i < network.nodes(); i++) {
+        var message = getRiskScoreMessage(i);
+        users[i].tell(shards > 0 ? new ShardMessage(i, message) : message);
+      }
     }
     logEvent(new SendRiskScoresEnd());
   }
 
+  // Shards host contiguous ranges of users, so each range is sent in one envelope.
+  private void sendRiskScoreBatches(ActorRef<UserMessage>[] users) {
+    for (int from = 0, to; from < users.length; from = to) {
+      to = from + 1;
+      while (to < users.length && users[to] == users[from]) {
+        to++;
+      }
+      var ids = new int[to - from];
+      var messages = new RiskScoreMessage[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = from + i;
+        messages[i] = getRiskScoreMessage(from + i);
+      }
+      users[from].tell(new BatchMessage(ids, messages));
+    }
+  }
+
+  private RiskScoreMessage getRiskScoreMessage(int user) {
+    return RiskScoreMessage.ofOrigin(scoreFactory.getRiskScore(user), user);
+  }
+
+  private Duration flushTickInterval() {
+    // Flushes are late by at most one tick.
+    var interval = parameters.flushTimeout().dividedBy(FLUSH_TICKS_PER_TIMEOUT);
+    return interval.compareTo(MIN_TICK_INTERVAL) > 0 ? interval : MIN_TICK_INTERVAL;
+  }
+
   @SuppressWarnings("unused")
-  private Behavior<MonitorMessage> handle(UserUpdatedMessage message) {
-    startIdleTimeoutTimer();
+  private Behavior<MonitorMessage> handle(FlushTickMessage message) {
+    flushes.tick();
+    return this;
+  }
+
+  @SuppressWarnings("unused")
+  private Behavior<MonitorMessage> handle(ProgressTimeoutMessage message) {
+    var event = progress.sample();
+    logEvent(event);
+    if (event.updates() > 0) {
+      startIdleTimeoutTimer();
+    }
     return this;
   }
 
+  @SuppressWarnings("unused")
+  private Behavior<MonitorMessage> handle(QuiescenceMessage message) {
+    return Behaviors.stopped();
+  }
+
   private void startIdleTimeoutTimer() {
     timers.startSingleTimer(IdleTimeoutMessage.INSTANCE, parameters.idleTimeout());
   }
@@ -140,12 +235,26 @@ final class Monitor extends AbstractBehavior<MonitorMessage> {
     return Behaviors.stopped();
   }
 
+  // Failing the monitor fails the run with the cause.
+  private Behavior<MonitorMessage> handle(UserFailedMessage message) {
+    throw new IllegalStateException("%s failed".formatted(message.user()), message.cause());
+  }
+
+  // Groups only stop before the run ends if they fail.
+  private Behavior<MonitorMessage> handle(Terminated terminated) {
+    var message = "%s stopped before the run ended".formatted(terminated.getRef().path());
+    throw terminated instanceof ChildFailed failed
+        ? new IllegalStateException(message, failed.getCause())
+        : new IllegalStateException(message);
+  }
+
   @SuppressWarnings("unused")
   private Behavior<MonitorMessage> handle(PostStop stop) {
     // Logging this in response to a PostStop signal is the only way that works.
-    // Set the MDC since Akka sometimes clears it before this event is logged.
-    MDC.setContextMap(context.mdc());
     logEvent(new RiskPropagationEnd());
+    flushes.addMetrics(metrics);
+    // Users add their metrics when they stop, which happens before the monitor stops.
+    logEvent(new MetricsEvent(metrics.snapshot()));
     return this;
   }
 
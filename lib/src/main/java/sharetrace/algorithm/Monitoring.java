@@ -0,0 +1,18 @@
+package sharetrace.algorithm;
+
+import akka.actor.typed.ActorRef;
+import sharetrace.model.message.MonitorMessage;
+import sharetrace.model.message.UserMessage;
+
+/*
+ The state that user actors share with the monitor. The users array is the routing table: the i-th
+ element is the actor that hosts user i. It is filled in before any user receives a message and is
+ not modified afterward.
+*/
+record Monitoring(
+    ActorRef<MonitorMessage> monitor,
+    ActorRef<UserMessage>[] users,
+    Metrics metrics,
+    WorkCounter work,
+    Progress progress,
+    FlushScheduler flushes) {}
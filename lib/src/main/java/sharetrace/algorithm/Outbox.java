@@ -0,0 +1,9 @@
+package sharetrace.algorithm;
+
+import sharetrace.model.message.RiskScoreMessage;
+
+@FunctionalInterface
+interface Outbox {
+
+  void send(int user, RiskScoreMessage message);
+}
@@ -0,0 +1,38 @@
+package sharetrace.algorithm;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import sharetrace.logging.event.ProgressEvent;
+
+// Users record updates here instead of messaging the monitor, which samples them periodically.
+final class Progress {
+
+  private final LongAdder updates;
+  private final LongAdder activeUsers;
+  private final LongAccumulator lastUpdateTime;
+
+  private volatile long interval;
+
+  public Progress() {
+    updates = new LongAdder();
+    activeUsers = new LongAdder();
+    lastUpdateTime = new LongAccumulator(Math::max, Long.MIN_VALUE);
+  }
+
+  // Returns the current interval, which the user passes on its next update.
+  public long update(long lastInterval, long time) {
+    updates.increment();
+    lastUpdateTime.accumulate(time);
+    var current = interval;
+    if (lastInterval != current) {
+      activeUsers.increment();
+    }
+    return current;
+  }
+
+  public ProgressEvent sample() {
+    interval++;
+    return new ProgressEvent(
+        updates.sumThenReset(), activeUsers.sumThenReset(), lastUpdateTime.get());
+  }
+}
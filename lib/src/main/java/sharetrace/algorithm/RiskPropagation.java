@@ -1,23 +1,21 @@
 package sharetrace.algorithm;
 
 import akka.actor.typed.ActorSystem;
-import akka.actor.typed.Behavior;
-import akka.actor.typed.DispatcherSelector;
-import akka.actor.typed.Terminated;
-import akka.actor.typed.javadsl.Behaviors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.IntStream;
-import org.slf4j.MDC;
 import sharetrace.Buildable;
 import sharetrace.logging.ExecutionProperties;
 import sharetrace.logging.ExecutionPropertiesBuilder;
+import sharetrace.logging.event.lifecycle.RunEnd;
+import sharetrace.logging.event.lifecycle.RunStart;
 import sharetrace.model.Context;
 import sharetrace.model.ContextBuilder;
 import sharetrace.model.Parameters;
 import sharetrace.model.factory.ContactNetworkFactory;
 import sharetrace.model.factory.KeyFactory;
 import sharetrace.model.factory.RiskScoreFactory;
-import sharetrace.model.message.RunMessage;
 
 @Buildable
 public record RiskPropagation(
@@ -41,7 +39,7 @@ public record RiskPropagation(
 
   private ExecutionProperties getProperties() {
     return ExecutionPropertiesBuilder.create()
-        .context(ContextBuilder.builder(context).addMdc("k", keyFactory.getKey()).build())
+        .context(getContext())
         .parameters(parameters)
         .scoreFactory(scoreFactory)
         .network(networkFactory.getContactNetwork())
@@ -50,17 +48,70 @@ public record RiskPropagation(
         .build();
   }
 
+  // Records of a run are logged with its key, rather than with the MDC of each thread.
+  private Context getContext() {
+    var fields = Map.of("k", keyFactory.getKey());
+    return ContextBuilder.builder(context)
+        .eventLogger(context.eventLogger().withFields(fields))
+        .propertyLogger(context.propertyLogger().withFields(fields))
+        .build();
+  }
+
   private void logProperties(ExecutionProperties properties) {
-    MDC.setContextMap(properties.context().mdc());
-    context.propertyLogger().log(properties);
+    properties.context().propertyLogger().log(properties);
   }
 
   private void run(ExecutionProperties properties) {
+    var logger = properties.context().eventLogger();
+    logger.log(new RunStart());
+    switch (properties.context().engine()) {
+      case ACTORS -> runActors(properties);
+      case BSP -> runSupersteps(properties);
+      case PRIORITY -> runWorkList(properties);
+      case VIRTUAL_THREADS -> runVirtualThreads(properties);
+      case SIMULATION -> runSimulation(properties);
+    }
+    logger.log(new RunEnd());
+  }
+
+  private void runSimulation(ExecutionProperties p) {
+    new Simulation(p.context(), p.parameters(), p.scoreFactory(), p.network()).run();
+  }
+
+  private void runVirtualThreads(ExecutionProperties p) {
+    new VirtualThreads(p.context(), p.parameters(), p.scoreFactory(), p.network()).run();
+  }
+
+  private void runWorkList(ExecutionProperties p) {
+    new WorkList(p.context(), p.parameters(), p.scoreFactory(), p.network()).run();
+  }
+
+  private void runSupersteps(ExecutionProperties p) {
+    var partitions = Runtime.getRuntime().availableProcessors();
+    new Supersteps(p.context(), p.parameters(), p.scoreFactory(), p.network(), partitions).run();
+  }
+
+  private void runActors(ExecutionProperties properties) {
+    var done = new CompletableFuture<Void>();
+    var run = new Guardian.Run(properties, done);
+    if (properties.context().reuseActorSystem()) {
+      Guardian.shared().tell(run);
+      await(done);
+    } else {
+      var system = ActorSystem.create(Guardian.of(), "RiskPropagation");
+      try {
+        system.tell(run);
+        await(done);
+      } finally {
+        system.terminate();
+        await(system.getWhenTerminated().toCompletableFuture());
+      }
+    }
+  }
+
+  private void await(CompletableFuture<?> future) {
     try {
-      ActorSystem.create(behavior(properties), "RiskPropagation")
-          .getWhenTerminated()
-          .toCompletableFuture()
-          .get();
+      future.get();
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       throw new RuntimeException(e);
@@ -68,18 +119,4 @@ public record RiskPropagation(
       throw new RuntimeException(e);
     }
   }
-
-  private Behavior<Void> behavior(ExecutionProperties p) {
-    return Behaviors.setup(
-        context -> {
-          var behavior = Monitor.of(p.context(), p.parameters(), p.scoreFactory(), p.network());
-          var props = DispatcherSelector.fromConfig("sharetrace.monitor.dispatcher");
-          var ref = context.spawn(behavior, "Monitor", props);
-          context.watch(ref);
-          ref.tell(RunMessage.INSTANCE);
-          return Behaviors.receive(Void.class)
-              .onSignal(Terminated.class, x -> Behaviors.stopped())
-              .build();
-        });
-  }
 }
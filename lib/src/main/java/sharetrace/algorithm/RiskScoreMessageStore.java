@@ -1,53 +1,172 @@
 package sharetrace.algorithm;
 
-import com.google.common.collect.Range;
-import com.google.common.collect.RangeMap;
-import com.google.common.collect.TreeRangeMap;
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.Optional;
-import java.util.function.BinaryOperator;
+import it.unimi.dsi.fastutil.doubles.DoubleArrays;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.ObjectArrays;
 import sharetrace.model.factory.TimeFactory;
 import sharetrace.model.message.RiskScoreMessage;
 
-final class RiskScoreMessageStore extends ExpirableStore<RiskScoreMessage> {
+final class RiskScoreMessageStore extends ExpirableStore {
 
-  private static final BinaryOperator<RiskScoreMessage> MAX_OPERATOR = maxOperator();
+  /*
+   Messages are kept in slots of parallel arrays, and the slots are ordered by timestamp. For each
+   position in that order, the slot of the maximum message (by value, then expiry time) up to and
+   including that position is precomputed so that the maximum message with a timestamp before some
+   time is found with a binary search. A message is not stored if another message has no later
+   timestamp, no lower value, and no earlier expiry time, since the other message would always be
+   selected instead.
+  */
+  private final IntArrayList freeSlots;
 
-  private final RangeMap<Long, RiskScoreMessage> store;
+  private RiskScoreMessage[] messages;
+  private long[] timestamps;
+  private long[] expiryTimes;
+  private double[] values;
+  private int[] order;
+  private int[] prefixMax;
+  private int slots;
+  private int size;
+  private int removedFrom;
 
   public RiskScoreMessageStore(TimeFactory timeFactory) {
     super(timeFactory);
-    store = TreeRangeMap.create();
+    freeSlots = new IntArrayList();
+    messages = new RiskScoreMessage[0];
+    timestamps = LongArrays.EMPTY_ARRAY;
+    expiryTimes = LongArrays.EMPTY_ARRAY;
+    values = DoubleArrays.EMPTY_ARRAY;
+    order = IntArrays.EMPTY_ARRAY;
+    prefixMax = IntArrays.EMPTY_ARRAY;
+    removedFrom = Integer.MAX_VALUE;
   }
 
-  public Optional<RiskScoreMessage> max(Range<Long> range) {
+  public RiskScoreMessage max() {
+    return max(Long.MAX_VALUE);
+  }
+
+  public RiskScoreMessage max(long timeBound) {
     refresh();
-    return values(store.subRangeMap(range)).stream().reduce(MAX_OPERATOR);
+    var end = lowerBound(timeBound);
+    return end == 0 ? RiskScoreMessage.NULL : messages[prefixMax[end - 1]];
   }
 
-  @Override
   public void add(RiskScoreMessage message) {
-    var key = Range.closedOpen(message.timestamp(), message.expiryTime());
-    store.merge(key, message, MAX_OPERATOR);
-    super.add(message);
+    if (!isDominated(message)) {
+      var from = lowerBound(message.timestamp());
+      removeDominatedBy(message, from);
+      var slot = newSlot();
+      messages[slot] = message;
+      timestamps[slot] = message.timestamp();
+      expiryTimes[slot] = message.expiryTime();
+      values[slot] = message.value();
+      insert(slot, upperBound(message.timestamp()));
+      updatePrefixMax(from);
+      track(slot, message.expiryTime());
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  protected boolean isCurrent(int slot, long expiryTime) {
+    return messages[slot] != null && expiryTimes[slot] == expiryTime;
+  }
+
+  @Override
+  protected void remove(int slot) {
+    // Defer updating the order until all expired messages are removed.
+    removedFrom = Math.min(removedFrom, lowerBound(timestamps[slot]));
+    freeSlot(slot);
   }
 
   @Override
-  protected Collection<RiskScoreMessage> values() {
-    return values(store);
+  protected void onRemoved() {
+    if (removedFrom < size) {
+      var newSize = removedFrom;
+      for (int i = removedFrom; i < size; i++) {
+        if (messages[order[i]] != null) {
+          order[newSize++] = order[i];
+        }
+      }
+      size = newSize;
+      updatePrefixMax(removedFrom);
+      removedFrom = Integer.MAX_VALUE;
+    }
+  }
+
+  private boolean isDominated(RiskScoreMessage message) {
+    for (int i = 0, end = upperBound(message.timestamp()); i < end; i++) {
+      var slot = order[i];
+      if (values[slot] >= message.value() && expiryTimes[slot] >= message.expiryTime()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void removeDominatedBy(RiskScoreMessage message, int from) {
+    var newSize = from;
+    for (int i = from; i < size; i++) {
+      var slot = order[i];
+      if (values[slot] > message.value() || expiryTimes[slot] > message.expiryTime()) {
+        order[newSize++] = slot;
+      } else {
+        freeSlot(slot);
+      }
+    }
+    size = newSize;
+  }
+
+  private void insert(int slot, int index) {
+    System.arraycopy(order, index, order, index + 1, size - index);
+    order[index] = slot;
+    size++;
+  }
+
+  private int newSlot() {
+    if (!freeSlots.isEmpty()) {
+      return freeSlots.popInt();
+    }
+    if (slots == messages.length) {
+      var capacity = slots + 1;
+      messages = ObjectArrays.grow(messages, capacity, slots);
+      timestamps = LongArrays.grow(timestamps, capacity, slots);
+      expiryTimes = LongArrays.grow(expiryTimes, capacity, slots);
+      values = DoubleArrays.grow(values, capacity, slots);
+      order = IntArrays.grow(order, capacity, size);
+      prefixMax = IntArrays.grow(prefixMax, capacity, size);
+    }
+    return slots++;
+  }
+
+  private void freeSlot(int slot) {
+    // Clear the reference so that the message can be garbage collected.
+    messages[slot] = null;
+    freeSlots.add(slot);
+  }
+
+  private void updatePrefixMax(int from) {
+    for (int i = from; i < size; i++) {
+      var slot = order[i];
+      prefixMax[i] = (i == 0 || isGreater(slot, prefixMax[i - 1])) ? slot : prefixMax[i - 1];
+    }
   }
 
-  private static Collection<RiskScoreMessage> values(RangeMap<Long, RiskScoreMessage> store) {
-    return store.asMapOfRanges().values();
+  private boolean isGreater(int slot, int other) {
+    var comparison = Double.compare(values[slot], values[other]);
+    return comparison > 0 || (comparison == 0 && expiryTimes[slot] > expiryTimes[other]);
   }
 
-  private static BinaryOperator<RiskScoreMessage> maxOperator() {
-    return BinaryOperator.maxBy(comparator());
+  private int lowerBound(long time) {
+    return SortedSlots.lowerBound(order, size, timestamps, time);
   }
 
-  private static Comparator<RiskScoreMessage> comparator() {
-    return Comparator.comparingDouble(RiskScoreMessage::value)
-        .thenComparingLong(RiskScoreMessage::expiryTime);
+  private int upperBound(long time) {
+    return SortedSlots.upperBound(order, size, timestamps, time);
   }
 }
@@ -0,0 +1,211 @@
+package sharetrace.algorithm;
+
+import it.unimi.dsi.fastutil.objects.ObjectHeapPriorityQueue;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import sharetrace.logging.event.Event;
+import sharetrace.logging.event.MetricsEvent;
+import sharetrace.logging.event.lifecycle.CreateUsersEnd;
+import sharetrace.logging.event.lifecycle.CreateUsersStart;
+import sharetrace.logging.event.lifecycle.RiskPropagationEnd;
+import sharetrace.logging.event.lifecycle.RiskPropagationStart;
+import sharetrace.logging.event.lifecycle.SendContactsEnd;
+import sharetrace.logging.event.lifecycle.SendContactsStart;
+import sharetrace.logging.event.lifecycle.SendRiskScoresEnd;
+import sharetrace.logging.event.lifecycle.SendRiskScoresStart;
+import sharetrace.model.Context;
+import sharetrace.model.Parameters;
+import sharetrace.model.factory.RiskScoreFactory;
+import sharetrace.model.graph.ContactNetwork;
+import sharetrace.model.message.ContactsMessage;
+import sharetrace.model.message.RiskScoreMessage;
+
+/*
+ Simulates the actor engine, with one actor per user, in a single thread on a virtual clock.
+ Messages are delivered and processed instantly. Time therefore only advances to the next flush
+ timeout or progress sample, rather than waiting for it. Scheduled events are ordered by time and
+ then by when they were scheduled. A user receives its messages in the order that they were sent,
+ and a flush on drain follows the messages that were already sent to the user, like in a mailbox.
+ Idle timeouts are detected from progress samples and the run ends once no work remains, as with
+ the monitor. Flushes are not delayed by flush ticks.
+*/
+final class Simulation {
+
+  private static final Comparator<Scheduled> EARLIEST_FIRST =
+      Comparator.comparingLong(Scheduled::time).thenComparingLong(Scheduled::sequence);
+
+  private final Context context;
+  private final Parameters parameters;
+  private final RiskScoreFactory scoreFactory;
+  private final ContactNetwork network;
+  private final Metrics metrics;
+  private final Progress progress;
+  private final ObjectHeapPriorityQueue<Scheduled> scheduled;
+  private final Users[] users;
+  private final long[] scheduledFlushes;
+  private final boolean[] drainScheduled;
+
+  private long time;
+  private long sequence;
+  private long work;
+
+  public Simulation(
+      Context context,
+      Parameters parameters,
+      RiskScoreFactory scoreFactory,
+      ContactNetwork network) {
+    var users = network.nodes();
+    this.context = context;
+    this.parameters = parameters;
+    this.scoreFactory = scoreFactory;
+    this.network = network;
+    this.metrics = new Metrics();
+    this.progress = new Progress();
+    this.scheduled = new ObjectHeapPriorityQueue<>(EARLIEST_FIRST);
+    this.users = new Users[users];
+    this.scheduledFlushes = new long[users];
+    Arrays.fill(scheduledFlushes, -1);
+    this.drainScheduled = new boolean[users];
+  }
+
+  public void run() {
+    logEvent(new RiskPropagationStart());
+    var threads = ManagementFactory.getThreadMXBean();
+    var cpuTime = threads.getCurrentThreadCpuTime();
+    createUsers();
+    sendContacts();
+    sendRiskScores();
+    simulate();
+    for (var user : users) {
+      user.stop();
+    }
+    metrics.add("VirtualTime", TimeUnit.NANOSECONDS.toMillis(time));
+    metrics.add(
+        "CpuTime", TimeUnit.NANOSECONDS.toMillis(threads.getCurrentThreadCpuTime() - cpuTime));
+    logEvent(new RiskPropagationEnd());
+    logEvent(new MetricsEvent(metrics.snapshot()));
+  }
+
+  private void createUsers() {
+    logEvent(new CreateUsersStart());
+    for (int i = 0; i < users.length; i++) {
+      users[i] = new Users(i, i + 1, context, parameters, metrics, progress);
+    }
+    logEvent(new CreateUsersEnd());
+  }
+
+  private void sendContacts() {
+    logEvent(new SendContactsStart());
+    var expiry = parameters.contactExpiry();
+    for (int i = 0; i < network.nodes(); i++) {
+      users[i].add(new ContactsMessage(i, network, expiry));
+    }
+    logEvent(new SendContactsEnd());
+  }
+
+  private void sendRiskScores() {
+    logEvent(new SendRiskScoresStart());
+    for (int i = 0; i < network.nodes(); i++) {
+      var score = scoreFactory.getRiskScore(i);
+      schedule(time, i, RiskScoreMessage.ofOrigin(score, i), Kind.DELIVERY);
+    }
+    logEvent(new SendRiskScoresEnd());
+  }
+
+  private void simulate() {
+    var progressInterval = parameters.progressInterval().toNanos();
+    var idleTimeout = parameters.idleTimeout().toNanos();
+    var nextSample = time + progressInterval;
+    var idleDeadline = time + idleTimeout;
+    while (work > 0) {
+      var next = scheduled.first();
+      while (nextSample <= next.time() && nextSample < idleDeadline) {
+        var event = progress.sample();
+        logEvent(event);
+        if (event.updates() > 0) {
+          idleDeadline = nextSample + idleTimeout;
+        }
+        nextSample += progressInterval;
+      }
+      if (next.time() >= idleDeadline) {
+        time = idleDeadline;
+        break;
+      }
+      scheduled.dequeue();
+      time = next.time();
+      handle(next);
+    }
+  }
+
+  private void handle(Scheduled event) {
+    var i = event.user();
+    switch (event.kind()) {
+      case DELIVERY -> {
+        var buffered = users[i].bufferedCount();
+        users[i].receive(i, event.message());
+        work += users[i].bufferedCount() - buffered - 1;
+        onProcessed(i);
+      }
+      case DRAIN -> {
+        drainScheduled[i] = false;
+        flush(i);
+      }
+      case TIMEOUT -> {
+        // A timeout is cancelled by an earlier flush, after which the user schedules another.
+        if (event.sequence() == scheduledFlushes[i]) {
+          flush(i);
+        }
+      }
+    }
+  }
+
+  private void onProcessed(int i) {
+    if (users[i].bufferedCount() > 0) {
+      if (users[i].isFull()) {
+        flush(i);
+      } else {
+        scheduleFlush(i);
+      }
+    }
+  }
+
+  private void scheduleFlush(int i) {
+    if (parameters.flushOnDrain() && !drainScheduled[i]) {
+      schedule(time, i, null, Kind.DRAIN);
+      drainScheduled[i] = true;
+    }
+    if (scheduledFlushes[i] < 0) {
+      scheduledFlushes[i] = sequence;
+      schedule(time + parameters.flushTimeout().toNanos(), i, null, Kind.TIMEOUT);
+    }
+  }
+
+  private void flush(int i) {
+    scheduledFlushes[i] = -1;
+    // Buffered messages are counted again as work when their delivery is scheduled.
+    work -= users[i].bufferedCount();
+    users[i].flush((user, message) -> schedule(time, user, message, Kind.DELIVERY));
+  }
+
+  private void schedule(long time, int user, RiskScoreMessage message, Kind kind) {
+    scheduled.enqueue(new Scheduled(time, sequence++, user, message, kind));
+    if (kind == Kind.DELIVERY) {
+      work++;
+    }
+  }
+
+  private void logEvent(Event event) {
+    context.eventLogger().log(event);
+  }
+
+  private enum Kind {
+    DELIVERY,
+    DRAIN,
+    TIMEOUT
+  }
+
+  private record Scheduled(
+      long time, long sequence, int user, RiskScoreMessage message, Kind kind) {}
+}
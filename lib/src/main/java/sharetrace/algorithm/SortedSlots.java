@@ -0,0 +1,37 @@
+package sharetrace.algorithm;
+
+// Binary searches over the slots of parallel arrays, given the order of the slots by some time.
+final class SortedSlots {
+
+  private SortedSlots() {}
+
+  // Returns the position of the first slot whose time is at least the given time.
+  public static int lowerBound(int[] order, int size, long[] times, long time) {
+    var low = 0;
+    var high = size;
+    while (low < high) {
+      var mid = (low + high) >>> 1;
+      if (times[order[mid]] < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // Returns the position of the first slot whose time is after the given time.
+  public static int upperBound(int[] order, int size, long[] times, long time) {
+    var low = 0;
+    var high = size;
+    while (low < high) {
+      var mid = (low + high) >>> 1;
+      if (times[order[mid]] <= time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,211 @@
+package sharetrace.algorithm;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+import sharetrace.logging.event.Event;
+import sharetrace.logging.event.MetricsEvent;
+import sharetrace.logging.event.lifecycle.CreateUsersEnd;
+import sharetrace.logging.event.lifecycle.CreateUsersStart;
+import sharetrace.logging.event.lifecycle.RiskPropagationEnd;
+import sharetrace.logging.event.lifecycle.RiskPropagationStart;
+import sharetrace.logging.event.lifecycle.SendContactsEnd;
+import sharetrace.logging.event.lifecycle.SendContactsStart;
+import sharetrace.logging.event.lifecycle.SendRiskScoresEnd;
+import sharetrace.logging.event.lifecycle.SendRiskScoresStart;
+import sharetrace.model.Context;
+import sharetrace.model.Parameters;
+import sharetrace.model.factory.RiskScoreFactory;
+import sharetrace.model.graph.ContactNetwork;
+import sharetrace.model.message.ContactsMessage;
+import sharetrace.model.message.RiskScoreMessage;
+
+/*
+ Runs risk propagation in bulk-synchronous supersteps instead of with actors. Users are split into
+ contiguous partitions that are processed in parallel. In each superstep, a partition processes the
+ messages sent to it in the previous superstep and then flushes its users. The flushed messages are
+ exchanged at the barrier, so messages are coalesced over one superstep instead of a flush timeout.
+ The run ends after a superstep in which no messages are sent.
+*/
+final class Supersteps {
+
+  private final Context context;
+  private final Parameters parameters;
+  private final RiskScoreFactory scoreFactory;
+  private final ContactNetwork network;
+  private final Metrics metrics;
+  private final Progress progress;
+  private final int[] bounds;
+  private final int[] partitionOf;
+  private final Users[] partitions;
+
+  private Mailbox[][] inboxes;
+  private Mailbox[][] outboxes;
+  private long lastProgressTime;
+
+  public Supersteps(
+      Context context,
+      Parameters parameters,
+      RiskScoreFactory scoreFactory,
+      ContactNetwork network,
+      int partitions) {
+    var users = network.nodes();
+    this.context = context;
+    this.parameters = parameters;
+    this.scoreFactory = scoreFactory;
+    this.network = network;
+    this.metrics = new Metrics();
+    this.progress = new Progress();
+    this.partitions = new Users[Math.max(1, Math.min(partitions, users))];
+    this.bounds = new int[this.partitions.length + 1];
+    this.partitionOf = new int[users];
+    for (int p = 0; p < this.partitions.length; p++) {
+      bounds[p + 1] = (int) ((long) users * (p + 1) / this.partitions.length);
+      Arrays.fill(partitionOf, bounds[p], bounds[p + 1], p);
+    }
+    this.inboxes = newMailboxes(this.partitions.length);
+    this.outboxes = newMailboxes(this.partitions.length);
+  }
+
+  public void run() {
+    logEvent(new RiskPropagationStart());
+    var pool = new ForkJoinPool(partitions.length);
+    try {
+      createUsers(pool);
+      sendContacts(pool);
+      sendRiskScores();
+      lastProgressTime = context.systemTimeFactory().getTime();
+      var supersteps = 0L;
+      do {
+        supersteps++;
+      } while (superstep(pool) > 0);
+      metrics.add("Supersteps", supersteps);
+      forEachPartition(pool, p -> partitions[p].stop());
+    } finally {
+      pool.shutdown();
+    }
+    logEvent(new RiskPropagationEnd());
+    logEvent(new MetricsEvent(metrics.snapshot()));
+  }
+
+  private void createUsers(ForkJoinPool pool) {
+    logEvent(new CreateUsersStart());
+    forEachPartition(
+        pool,
+        p ->
+            partitions[p] =
+                new Users(bounds[p], bounds[p + 1], context, parameters, metrics, progress));
+    logEvent(new CreateUsersEnd());
+  }
+
+  private void sendContacts(ForkJoinPool pool) {
+    logEvent(new SendContactsStart());
+    var expiry = parameters.contactExpiry();
+    forEachPartition(
+        pool,
+        p -> {
+          for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+            partitions[p].add(new ContactsMessage(i, network, expiry));
+          }
+        });
+    logEvent(new SendContactsEnd());
+  }
+
+  private void sendRiskScores() {
+    logEvent(new SendRiskScoresStart());
+    for (int i = 0; i < network.nodes(); i++) {
+      var p = partitionOf[i];
+      inboxes[p][p].add(i, RiskScoreMessage.ofOrigin(scoreFactory.getRiskScore(i), i));
+    }
+    logEvent(new SendRiskScoresEnd());
+  }
+
+  // Returns the number of messages that were sent.
+  private long superstep(ForkJoinPool pool) {
+    var sent = new long[partitions.length];
+    forEachPartition(
+        pool,
+        p -> {
+          var users = partitions[p];
+          for (var inbox : inboxes[p]) {
+            inbox.deliverTo(users);
+          }
+          sent[p] = users.bufferedCount();
+          users.flush((user, message) -> outboxes[p][partitionOf[user]].add(user, message));
+        });
+    exchange();
+    logProgress();
+    var total = 0L;
+    for (var count : sent) {
+      total += count;
+    }
+    return total;
+  }
+
+  private void exchange() {
+    // The inboxes were emptied during the superstep, so they are reused as outboxes.
+    var empty = inboxes;
+    inboxes = new Mailbox[partitions.length][];
+    for (int p = 0; p < partitions.length; p++) {
+      inboxes[p] = new Mailbox[partitions.length];
+      for (int q = 0; q < partitions.length; q++) {
+        inboxes[p][q] = outboxes[q][p];
+      }
+    }
+    outboxes = empty;
+  }
+
+  private void logProgress() {
+    var time = context.systemTimeFactory().getTime();
+    if (time - lastProgressTime >= parameters.progressInterval().toMillis()) {
+      logEvent(progress.sample());
+      lastProgressTime = time;
+    }
+  }
+
+  private void forEachPartition(ForkJoinPool pool, IntConsumer action) {
+    var tasks = new ArrayList<ForkJoinTask<?>>(partitions.length);
+    for (int p = 0; p < partitions.length; p++) {
+      int partition = p;
+      tasks.add(ForkJoinTask.adapt(() -> action.accept(partition)));
+    }
+    pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+  }
+
+  private static Mailbox[][] newMailboxes(int partitions) {
+    var mailboxes = new Mailbox[partitions][partitions];
+    for (var row : mailboxes) {
+      for (int q = 0; q < partitions; q++) {
+        row[q] = new Mailbox();
+      }
+    }
+    return mailboxes;
+  }
+
+  private void logEvent(Event event) {
+    context.eventLogger().log(event);
+  }
+
+  private static final class Mailbox {
+
+    private final IntArrayList users = new IntArrayList();
+    private final ObjectArrayList<RiskScoreMessage> messages = new ObjectArrayList<>();
+
+    void add(int user, RiskScoreMessage message) {
+      users.add(user);
+      messages.add(message);
+    }
+
+    void deliverTo(Users receivers) {
+      for (int i = 0; i < users.size(); i++) {
+        receivers.receive(users.getInt(i), messages.get(i));
+      }
+      users.clear();
+      messages.clear();
+    }
+  }
+}
@@ -3,167 +3,268 @@ package sharetrace.algorithm;
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
 import akka.actor.typed.PostStop;
-import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.Signal;
+import akka.actor.typed.javadsl.AbstractOnMessageBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
-import akka.actor.typed.javadsl.Receive;
-import akka.actor.typed.javadsl.TimerScheduler;
-import com.google.common.collect.Range;
-import sharetrace.logging.event.Event;
-import sharetrace.logging.event.user.ContactEvent;
-import sharetrace.logging.event.user.LastEvent;
-import sharetrace.logging.event.user.ReceiveEvent;
-import sharetrace.logging.event.user.UpdateEvent;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMaps;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import sharetrace.model.Context;
-import sharetrace.model.Expirable;
 import sharetrace.model.Parameters;
-import sharetrace.model.message.ContactMessage;
+import sharetrace.model.message.BatchMessage;
+import sharetrace.model.message.ContactsMessage;
+import sharetrace.model.message.FlushMessage;
 import sharetrace.model.message.FlushTimeoutMessage;
-import sharetrace.model.message.MonitorMessage;
+import sharetrace.model.message.QuiescenceMessage;
 import sharetrace.model.message.RiskScoreMessage;
+import sharetrace.model.message.ShardMessage;
+import sharetrace.model.message.UserFailedMessage;
 import sharetrace.model.message.UserMessage;
-import sharetrace.model.message.UserUpdatedMessage;
 
-final class User extends AbstractBehavior<UserMessage> {
+/*
+ Hosts a single user or, if sharding is enabled, a contiguous range of users. If batching is also
+ enabled, the messages that a flush produces for the users of another shard are sent to it in one
+ envelope. A user has at most one message for each of its contacts per flush, so batching does not
+ apply when each user has its own actor.
+*/
+final class User extends AbstractOnMessageBehavior<UserMessage> {
 
-  private final int id;
-  private final Context context;
+  private final int from;
+  private final int to;
+  private final boolean sharded;
+  private final boolean batched;
   private final Parameters parameters;
-  private final ActorRef<MonitorMessage> monitor;
-  private final TimerScheduler<UserMessage> timers;
-  private final RiskScoreMessageStore scores;
-  private final ContactStore contacts;
+  private final Monitoring monitoring;
+  private final Users users;
+  private final IntArrayList localUsers;
+  private final ObjectArrayList<RiskScoreMessage> localMessages;
+  private final Reference2ObjectMap<ActorRef<UserMessage>, Batch> batches;
 
-  private RiskScoreMessage exposureScore;
-  private long lastEventTime;
+  private FlushScheduler.Flush scheduledFlush;
+  private boolean drainScheduled;
+  private long batchesSent;
 
   private User(
-      int id,
       ActorContext<UserMessage> actorContext,
+      int from,
+      int to,
+      boolean sharded,
+      boolean batched,
       Context context,
       Parameters parameters,
-      ActorRef<MonitorMessage> monitor,
-      TimerScheduler<UserMessage> timers) {
+      Monitoring monitoring) {
     super(actorContext);
-    this.id = id;
-    this.context = context;
+    this.from = from;
+    this.to = to;
+    this.sharded = sharded;
+    this.batched = batched;
     this.parameters = parameters;
-    this.monitor = monitor;
-    this.timers = timers;
-    this.scores = new RiskScoreMessageStore(context.userTimeFactory());
-    this.contacts = new ContactStore(context.userTimeFactory());
-    this.exposureScore = RiskScoreMessage.NULL;
+    this.monitoring = monitoring;
+    this.users =
+        new Users(from, to, context, parameters, monitoring.metrics(), monitoring.progress());
+    this.localUsers = new IntArrayList();
+    this.localMessages = new ObjectArrayList<>();
+    this.batches = new Reference2ObjectOpenHashMap<>();
   }
 
   public static Behavior<UserMessage> of(
-      int id, Context context, Parameters parameters, ActorRef<MonitorMessage> monitor) {
+      int from,
+      int to,
+      boolean sharded,
+      boolean batched,
+      Context context,
+      Parameters parameters,
+      Monitoring monitoring) {
     return Behaviors.setup(
-        actorContext -> {
-          var user =
-              Behaviors.<UserMessage>withTimers(
-                  timers -> new User(id, actorContext, context, parameters, monitor, timers));
-          return Behaviors.withMdc(UserMessage.class, context.mdc(), user);
-        });
+        actorContext ->
+            new User(actorContext, from, to, sharded, batched, context, parameters, monitoring));
   }
 
+  // Dispatching with a switch avoids the allocations of a receive builder on every message.
   @Override
-  public Receive<UserMessage> createReceive() {
-    return newReceiveBuilder()
-        .onMessage(ContactMessage.class, this::handle)
-        .onMessage(RiskScoreMessage.class, this::handle)
-        .onMessage(FlushTimeoutMessage.class, this::handle)
-        .onSignal(PostStop.class, this::handle)
-        .build();
-  }
-
-  private Behavior<UserMessage> handle(ContactMessage message) {
-    if (!isExpired(message)) {
-      var contact = new Contact(message, parameters, context.userTimeFactory());
-      contacts.add(contact);
-      contact.apply(scores);
-      logContactEvent(contact);
+  public Behavior<UserMessage> onMessage(UserMessage message) {
+    try {
+      return switch (message) {
+        case ContactsMessage m -> handle(m);
+        case RiskScoreMessage m -> handle(m);
+        case ShardMessage m -> handle(m);
+        case BatchMessage m -> handle(m);
+        case FlushMessage m -> handle(m);
+        case FlushTimeoutMessage m -> handle(m);
+        default -> Behaviors.unhandled();
+      };
+    } catch (RuntimeException e) {
+      // The user still stops, but its parent does not watch it, so the monitor is told instead.
+      var user = getContext().getSelf().path().toString();
+      monitoring.monitor().tell(new UserFailedMessage(user, e));
+      throw e;
     }
+  }
+
+  @Override
+  public Behavior<UserMessage> onSignal(Signal signal) {
+    return signal instanceof PostStop stop ? handle(stop) : this;
+  }
+
+  private Behavior<UserMessage> handle(ContactsMessage message) {
+    var buffered = users.bufferedCount();
+    users.add(message);
+    onProcessed(buffered, 1);
     return this;
   }
 
   private Behavior<UserMessage> handle(RiskScoreMessage message) {
-    logReceiveEvent(message);
-    if (!isExpired(message)) {
-      updateExposureScore(message);
-      var transmitted = transmitted(message);
-      scores.add(transmitted);
-      contacts.forEach(contact -> contact.apply(transmitted, scores));
-    }
-    startFlushTimeoutTimer();
+    return receive(from, message);
+  }
+
+  private Behavior<UserMessage> handle(ShardMessage message) {
+    return receive(message.user(), message.message());
+  }
+
+  private Behavior<UserMessage> handle(BatchMessage message) {
+    var buffered = users.bufferedCount();
+    for (int i = 0; i < message.size(); i++) {
+      users.receive(message.users()[i], message.messages()[i]);
+    }
+    onProcessed(buffered, message.size());
+    return this;
+  }
+
+  private Behavior<UserMessage> receive(int user, RiskScoreMessage message) {
+    var buffered = users.bufferedCount();
+    users.receive(user, message);
+    onProcessed(buffered, 1);
     return this;
   }
 
-  private void updateExposureScore(RiskScoreMessage message) {
-    if (exposureScore.value() < message.value()) {
-      onUpdate(message);
-    } else if (isExpired(exposureScore)) {
-      onUpdate(scores.max(Range.all()).map(this::original).orElse(RiskScoreMessage.NULL));
+  private void onProcessed(int buffered, int processed) {
+    // Complete the work first so that flushed messages are counted before they are processed.
+    complete(users.bufferedCount() - buffered, processed);
+    if (users.bufferedCount() > 0) {
+      if (users.isFull()) {
+        flush();
+      } else {
+        scheduleFlush();
+      }
     }
   }
 
-  private void onUpdate(RiskScoreMessage newValue) {
-    var oldValue = exposureScore;
-    exposureScore = newValue;
-    logUpdateEvent(oldValue, newValue);
-    monitor.tell(UserUpdatedMessage.INSTANCE);
+  private void complete(int produced, int processed) {
+    if (monitoring.work().complete(produced, processed)) {
+      monitoring.monitor().tell(QuiescenceMessage.INSTANCE);
+    }
   }
 
-  private void startFlushTimeoutTimer() {
-    if (!timers.isTimerActive(FlushTimeoutMessage.INSTANCE)) {
-      timers.startTimerWithFixedDelay(FlushTimeoutMessage.INSTANCE, parameters.flushTimeout());
+  private void scheduleFlush() {
+    if (parameters.flushOnDrain() && !drainScheduled) {
+      // Messages already in the mailbox are processed first, so they are still coalesced.
+      getContext().getSelf().tell(FlushMessage.INSTANCE);
+      drainScheduled = true;
+    }
+    // Bounds the latency of a flush if the mailbox does not drain.
+    if (scheduledFlush == null) {
+      scheduledFlush = monitoring.flushes().schedule(getContext().getSelf());
     }
   }
 
   @SuppressWarnings("unused")
-  private Behavior<UserMessage> handle(FlushTimeoutMessage message) {
-    contacts.forEach(Contact::flush);
-    contacts.refresh();
+  private Behavior<UserMessage> handle(FlushMessage message) {
+    drainScheduled = false;
+    flush();
     return this;
   }
 
   @SuppressWarnings("unused")
-  private Behavior<UserMessage> handle(PostStop stop) {
-    logLastEvent();
+  private Behavior<UserMessage> handle(FlushTimeoutMessage message) {
+    scheduledFlush = null;
+    // The timeout may have been sent just before an early flush emptied the buffer.
+    if (users.bufferedCount() > 0) {
+      flush();
+    }
     return this;
   }
 
-  private boolean isExpired(Expirable expirable) {
-    return expirable.isExpired(context.userTimeFactory().getTime());
+  private void flush() {
+    // A flush timeout that was already sent is still awaited, so that only one is pending.
+    if (scheduledFlush != null && scheduledFlush.cancel()) {
+      scheduledFlush = null;
+    }
+    // Flushing turns buffered work into sent work, so the pending work does not change.
+    users.flush(this::send);
+    while (!localUsers.isEmpty()) {
+      var processed = localUsers.size();
+      for (int i = 0; i < processed; i++) {
+        users.receive(localUsers.getInt(i), localMessages.get(i));
+      }
+      localUsers.clear();
+      localMessages.clear();
+      complete(users.bufferedCount(), processed);
+      if (users.isFull()) {
+        users.flush(this::send);
+      }
+    }
+    sendBatches();
+    if (users.bufferedCount() > 0) {
+      scheduleFlush();
+    }
   }
 
-  private RiskScoreMessage transmitted(RiskScoreMessage message) {
-    var score = message.score().mapValue(value -> value * parameters.transmissionRate());
-    return new RiskScoreMessage(score, id, message.origin());
+  private void send(int user, RiskScoreMessage message) {
+    if (from <= user && user < to) {
+      // Messages between users of the same shard do not need to go through the mailbox.
+      localUsers.add(user);
+      localMessages.add(message);
+    } else if (batched) {
+      batches.computeIfAbsent(monitoring.users()[user], x -> new Batch()).add(user, message);
+    } else if (sharded) {
+      monitoring.users()[user].tell(new ShardMessage(user, message));
+    } else {
+      monitoring.users()[user].tell(message);
+    }
   }
 
-  private RiskScoreMessage original(RiskScoreMessage message) {
-    var score = message.score().mapValue(value -> value / parameters.transmissionRate());
-    return new RiskScoreMessage(score, message.sender(), message.origin());
+  private void sendBatches() {
+    for (var entry : Reference2ObjectMaps.fastIterable(batches)) {
+      var batch = entry.getValue();
+      if (!batch.isEmpty()) {
+        entry.getKey().tell(batch.toMessage());
+        batchesSent++;
+      }
+    }
   }
 
-  private void logContactEvent(Contact contact) {
-    logNonLastEvent(new ContactEvent(id, contact.id(), contact.timestamp()));
+  @SuppressWarnings("unused")
+  private Behavior<UserMessage> handle(PostStop stop) {
+    users.stop();
+    if (batched) {
+      monitoring.metrics().add("BatchesSent", batchesSent);
+    }
+    return this;
   }
 
-  private void logReceiveEvent(RiskScoreMessage message) {
-    logNonLastEvent(new ReceiveEvent(id, message.sender(), message));
-  }
+  // The messages of a flush for the users of another shard.
+  private static final class Batch {
 
-  private void logUpdateEvent(RiskScoreMessage previous, RiskScoreMessage current) {
-    logNonLastEvent(new UpdateEvent(id, previous, current));
-  }
+    private final IntArrayList users = new IntArrayList();
+    private final ObjectArrayList<RiskScoreMessage> messages = new ObjectArrayList<>();
 
-  private void logLastEvent() {
-    context.eventLogger().log(new LastEvent(id, lastEventTime));
-  }
+    void add(int user, RiskScoreMessage message) {
+      users.add(user);
+      messages.add(message);
+    }
+
+    boolean isEmpty() {
+      return users.isEmpty();
+    }
 
-  private void logNonLastEvent(Event event) {
-    lastEventTime = context.systemTimeFactory().getTime();
-    context.eventLogger().log(event);
+    BatchMessage toMessage() {
+      var message = new BatchMessage(users.toIntArray(), messages.toArray(new RiskScoreMessage[0]));
+      users.clear();
+      messages.clear();
+      return message;
+    }
   }
 }
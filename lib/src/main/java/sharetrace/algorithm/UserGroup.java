@@ -0,0 +1,48 @@
+package sharetrace.algorithm;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.javadsl.Behaviors;
+import sharetrace.model.Context;
+import sharetrace.model.Parameters;
+import sharetrace.model.message.UsersCreatedMessage;
+
+/*
+ Spawns and parents a contiguous range of the user actors, so that the monitor does not parent all
+ of them and groups spawn their users in parallel. Each group writes the references of its users
+ into the routing table and then notifies the monitor, which waits for every group before sending
+ messages. Groups do not watch their users, since that costs a death watch per user. A user that
+ fails tells the monitor instead.
+*/
+final class UserGroup {
+
+  private UserGroup() {}
+
+  public static Behavior<Void> of(
+      int from,
+      int to,
+      int actors,
+      boolean sharded,
+      boolean batched,
+      Context context,
+      Parameters parameters,
+      Monitoring monitoring) {
+    return Behaviors.setup(
+        actorContext -> {
+          var props = DispatcherSelector.fromConfig("sharetrace.user.dispatcher");
+          var users = monitoring.users();
+          for (int a = from; a < to; a++) {
+            int first = (int) ((long) users.length * a / actors);
+            int last = (int) ((long) users.length * (a + 1) / actors);
+            var behavior = User.of(first, last, sharded, batched, context, parameters, monitoring);
+            var name = sharded ? "Shard-" + a : "User-" + a;
+            var user = actorContext.spawn(behavior, name, props);
+            for (int i = first; i < last; i++) {
+              users[i] = user;
+            }
+          }
+          monitoring.monitor().tell(UsersCreatedMessage.INSTANCE);
+          return Behaviors.empty();
+        });
+  }
+}
@@ -0,0 +1,204 @@
+package sharetrace.algorithm;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import sharetrace.logging.event.Event;
+import sharetrace.logging.event.user.ContactEvent;
+import sharetrace.logging.event.user.LastEvent;
+import sharetrace.logging.event.user.ReceiveEvent;
+import sharetrace.logging.event.user.UpdateEvent;
+import sharetrace.model.Context;
+import sharetrace.model.Expirable;
+import sharetrace.model.Parameters;
+import sharetrace.model.message.ContactsMessage;
+import sharetrace.model.message.RiskScoreMessage;
+
+/*
+ The risk propagation logic of a contiguous range of users, independent of how messages are
+ delivered between them. Users with buffered messages are tracked so that flushing only visits them.
+ The flush buffer limit applies to each user, so it has the same meaning however users are hosted.
+*/
+final class Users {
+
+  private final int from;
+  private final Context context;
+  private final Parameters parameters;
+  private final Metrics metrics;
+  private final Progress progress;
+  private final RiskScoreMessageStore[] scores;
+  private final ContactStore[] contacts;
+  private final RiskScoreMessage[] exposureScores;
+  private final long[] lastEventTimes;
+  private final long[] progressIntervals;
+  private final IntArrayList flushable;
+
+  private int bufferedCount;
+  private boolean full;
+  private long sent;
+
+  public Users(
+      int from,
+      int to,
+      Context context,
+      Parameters parameters,
+      Metrics metrics,
+      Progress progress) {
+    var size = to - from;
+    this.from = from;
+    this.context = context;
+    this.parameters = parameters;
+    this.metrics = metrics;
+    this.progress = progress;
+    this.scores = new RiskScoreMessageStore[size];
+    this.contacts = new ContactStore[size];
+    this.exposureScores = new RiskScoreMessage[size];
+    this.lastEventTimes = new long[size];
+    this.progressIntervals = new long[size];
+    this.flushable = new IntArrayList();
+    for (int i = 0; i < size; i++) {
+      scores[i] = new RiskScoreMessageStore(context.userTimeFactory());
+      contacts[i] = new ContactStore(parameters, context.userTimeFactory());
+      exposureScores[i] = RiskScoreMessage.NULL;
+      progressIntervals[i] = -1;
+    }
+  }
+
+  public void add(ContactsMessage message) {
+    var i = message.user() - from;
+    var buffered = contacts[i].bufferedCount();
+    var currentTime = context.userTimeFactory().getTime();
+    contacts[i].ensureCapacity(contacts[i].size() + message.size());
+    for (int j = 0; j < message.size(); j++) {
+      var expiryTime = message.expiryTime(j);
+      if (expiryTime >= currentTime) {
+        var contact = contacts[i].add(message.id(j), message.timestamp(j), expiryTime);
+        contacts[i].apply(contact, scores[i]);
+        logContactEvent(i, contact);
+      }
+    }
+    onBuffered(i, buffered);
+  }
+
+  public void receive(int user, RiskScoreMessage message) {
+    var i = user - from;
+    logReceiveEvent(i, message);
+    var buffered = contacts[i].bufferedCount();
+    if (!isExpired(message)) {
+      updateExposureScore(i, message);
+      var transmitted = transmitted(user, message);
+      scores[i].add(transmitted);
+      // Evicting a contact drops its buffered message, so only evict if no flush is pending.
+      if (contacts[i].bufferedCount() == 0) {
+        contacts[i].refresh();
+      }
+      contacts[i].apply(transmitted, scores[i]);
+    }
+    onBuffered(i, buffered);
+  }
+
+  public void flush(Outbox outbox) {
+    for (int k = 0; k < flushable.size(); k++) {
+      var i = flushable.getInt(k);
+      contacts[i].flush(outbox);
+      contacts[i].refresh();
+    }
+    flushable.clear();
+    sent += bufferedCount;
+    bufferedCount = 0;
+    full = false;
+  }
+
+  public int bufferedCount() {
+    return bufferedCount;
+  }
+
+  // Returns whether a user has reached the flush buffer limit since the last flush.
+  public boolean isFull() {
+    return full;
+  }
+
+  public void stop() {
+    for (int i = 0; i < contacts.length; i++) {
+      context.eventLogger().log(new LastEvent(from + i, lastEventTimes[i]));
+      addMetrics(i);
+    }
+    metrics.add("MessagesSent", sent);
+  }
+
+  private void onBuffered(int i, int buffered) {
+    var newBuffered = contacts[i].bufferedCount();
+    if (buffered == 0 && newBuffered > 0) {
+      flushable.add(i);
+    }
+    bufferedCount += newBuffered - buffered;
+    var limit = parameters.flushBufferLimit();
+    if (limit > 0 && newBuffered >= limit) {
+      full = true;
+    }
+  }
+
+  private void updateExposureScore(int i, RiskScoreMessage message) {
+    if (exposureScores[i].value() < message.value()) {
+      onUpdate(i, message);
+    } else if (isExpired(exposureScores[i])) {
+      var max = scores[i].max();
+      onUpdate(i, max != RiskScoreMessage.NULL ? original(max) : RiskScoreMessage.NULL);
+    }
+  }
+
+  private void onUpdate(int i, RiskScoreMessage newValue) {
+    var oldValue = exposureScores[i];
+    exposureScores[i] = newValue;
+    logUpdateEvent(i, oldValue, newValue);
+    progressIntervals[i] = progress.update(progressIntervals[i], lastEventTimes[i]);
+  }
+
+  private void addMetrics(int i) {
+    metrics.add("ContactRefreshes", contacts[i].refreshes());
+    metrics.add("ContactEvictions", contacts[i].evictions());
+    metrics.add("ContactVisits", contacts[i].visits());
+    metrics.add("ContactSkips", contacts[i].skips());
+    metrics.add("ScoreRefreshes", scores[i].refreshes());
+    metrics.add("ScoreEvictions", scores[i].evictions());
+  }
+
+  private boolean isExpired(Expirable expirable) {
+    return expirable.isExpired(context.userTimeFactory().getTime());
+  }
+
+  private RiskScoreMessage transmitted(int user, RiskScoreMessage message) {
+    return message.withValue(message.value() * parameters.transmissionRate(), user);
+  }
+
+  private RiskScoreMessage original(RiskScoreMessage message) {
+    return message.withValue(message.value() / parameters.transmissionRate(), message.sender());
+  }
+
+  private void logContactEvent(int i, int contact) {
+    if (onNonLastEvent(i, ContactEvent.class)) {
+      var id = contacts[i].id(contact);
+      logEvent(new ContactEvent(from + i, id, contacts[i].timestamp(contact)));
+    }
+  }
+
+  private void logReceiveEvent(int i, RiskScoreMessage message) {
+    if (onNonLastEvent(i, ReceiveEvent.class)) {
+      logEvent(new ReceiveEvent(from + i, message.sender(), message));
+    }
+  }
+
+  private void logUpdateEvent(int i, RiskScoreMessage previous, RiskScoreMessage current) {
+    if (onNonLastEvent(i, UpdateEvent.class)) {
+      logEvent(new UpdateEvent(from + i, previous, current));
+    }
+  }
+
+  // Returns whether the event is logged; it is only created if so, but always counts as the last.
+  private boolean onNonLastEvent(int i, Class<? extends Event> type) {
+    lastEventTimes[i] = context.systemTimeFactory().getTime();
+    return context.eventLogger().isLogged(type);
+  }
+
+  private void logEvent(Event event) {
+    context.eventLogger().log(event);
+  }
+}
@@ -0,0 +1,214 @@
+package sharetrace.algorithm;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import sharetrace.logging.event.Event;
+import sharetrace.logging.event.MetricsEvent;
+import sharetrace.logging.event.lifecycle.CreateUsersEnd;
+import sharetrace.logging.event.lifecycle.CreateUsersStart;
+import sharetrace.logging.event.lifecycle.RiskPropagationEnd;
+import sharetrace.logging.event.lifecycle.RiskPropagationStart;
+import sharetrace.logging.event.lifecycle.SendContactsEnd;
+import sharetrace.logging.event.lifecycle.SendContactsStart;
+import sharetrace.logging.event.lifecycle.SendRiskScoresEnd;
+import sharetrace.logging.event.lifecycle.SendRiskScoresStart;
+import sharetrace.model.Context;
+import sharetrace.model.Parameters;
+import sharetrace.model.factory.RiskScoreFactory;
+import sharetrace.model.graph.ContactNetwork;
+import sharetrace.model.message.ContactsMessage;
+import sharetrace.model.message.RiskScoreMessage;
+
+/*
+ Runs risk propagation with a virtual thread per user or, if sharding is enabled, per contiguous
+ range of users. Each thread processes the messages in its lock-free inbox until it is empty,
+ flushes its users, and parks until more messages arrive. Buffered messages are therefore coalesced
+ until the inbox drains, as with flush-on-drain, or until the flush buffer limit is reached. The
+ run ends when no work remains or, like with actors, when no user has updated for the idle timeout.
+*/
+final class VirtualThreads {
+
+  private final Context context;
+  private final Parameters parameters;
+  private final RiskScoreFactory scoreFactory;
+  private final ContactNetwork network;
+  private final Metrics metrics;
+  private final Progress progress;
+  private final WorkCounter work;
+  private final CountDownLatch done;
+  private final CountDownLatch contactsAdded;
+  private final Block[] blocks;
+  private final Block[] blockOf;
+
+  private volatile boolean stopped;
+
+  public VirtualThreads(
+      Context context,
+      Parameters parameters,
+      RiskScoreFactory scoreFactory,
+      ContactNetwork network) {
+    var users = network.nodes();
+    var shards = context.shards();
+    this.context = context;
+    this.parameters = parameters;
+    this.scoreFactory = scoreFactory;
+    this.network = network;
+    this.metrics = new Metrics();
+    this.progress = new Progress();
+    this.work = new WorkCounter();
+    this.done = new CountDownLatch(1);
+    this.blocks = new Block[shards > 0 ? Math.min(shards, users) : users];
+    this.contactsAdded = new CountDownLatch(blocks.length);
+    this.blockOf = new Block[users];
+  }
+
+  public void run() {
+    logEvent(new RiskPropagationStart());
+    createUsers();
+    work.add(network.nodes());
+    // An empty network has no users to complete the work.
+    if (network.nodes() == 0) {
+      done.countDown();
+    }
+    sendContacts();
+    sendRiskScores();
+    awaitDone();
+    stopped = true;
+    for (var block : blocks) {
+      LockSupport.unpark(block.thread);
+    }
+    join();
+    for (var block : blocks) {
+      block.users.stop();
+    }
+    logEvent(new RiskPropagationEnd());
+    logEvent(new MetricsEvent(metrics.snapshot()));
+  }
+
+  private void createUsers() {
+    logEvent(new CreateUsersStart());
+    for (int b = 0; b < blocks.length; b++) {
+      int from = (int) ((long) blockOf.length * b / blocks.length);
+      int to = (int) ((long) blockOf.length * (b + 1) / blocks.length);
+      blocks[b] = new Block(from, to);
+      for (int i = from; i < to; i++) {
+        blockOf[i] = blocks[b];
+      }
+    }
+    logEvent(new CreateUsersEnd());
+  }
+
+  // Each thread adds the contacts of its users before processing any message.
+  private void sendContacts() {
+    logEvent(new SendContactsStart());
+    for (var block : blocks) {
+      block.thread.start();
+    }
+    try {
+      contactsAdded.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    logEvent(new SendContactsEnd());
+  }
+
+  private void sendRiskScores() {
+    logEvent(new SendRiskScoresStart());
+    for (int i = 0; i < network.nodes(); i++) {
+      send(i, RiskScoreMessage.ofOrigin(scoreFactory.getRiskScore(i), i));
+    }
+    logEvent(new SendRiskScoresEnd());
+  }
+
+  private void send(int user, RiskScoreMessage message) {
+    var block = blockOf[user];
+    block.inbox.offer(new Delivery(user, message));
+    LockSupport.unpark(block.thread);
+  }
+
+  private void awaitDone() {
+    var idleTimeout = parameters.idleTimeout().toMillis();
+    var interval = parameters.progressInterval().toMillis();
+    var idleTime = 0L;
+    try {
+      while (!done.await(interval, TimeUnit.MILLISECONDS) && idleTime < idleTimeout) {
+        var event = progress.sample();
+        logEvent(event);
+        idleTime = event.updates() > 0 ? 0 : idleTime + interval;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void join() {
+    try {
+      for (var block : blocks) {
+        block.thread.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void logEvent(Event event) {
+    context.eventLogger().log(event);
+  }
+
+  private final class Block implements Runnable {
+
+    private final int from;
+    private final int to;
+    private final ConcurrentLinkedQueue<Delivery> inbox;
+    private final Users users;
+    private final Thread thread;
+
+    private Block(int from, int to) {
+      this.from = from;
+      this.to = to;
+      this.inbox = new ConcurrentLinkedQueue<>();
+      this.users = new Users(from, to, context, parameters, metrics, progress);
+      this.thread = Thread.ofVirtual().name("User-" + from).unstarted(this);
+    }
+
+    @Override
+    public void run() {
+      var expiry = parameters.contactExpiry();
+      for (int i = from; i < to; i++) {
+        users.add(new ContactsMessage(i, network, expiry));
+      }
+      contactsAdded.countDown();
+      while (!stopped) {
+        var processed = 0;
+        Delivery delivery;
+        while ((delivery = inbox.poll()) != null) {
+          users.receive(delivery.user(), delivery.message());
+          processed++;
+          if (users.isFull()) {
+            flush(processed);
+            processed = 0;
+          }
+        }
+        if (processed > 0 || users.bufferedCount() > 0) {
+          flush(processed);
+        }
+        if (inbox.isEmpty()) {
+          LockSupport.park(this);
+        }
+      }
+    }
+
+    private void flush(int processed) {
+      // Count the flushed messages before sending them so that the work cannot complete early.
+      if (work.complete(users.bufferedCount(), processed)) {
+        done.countDown();
+      }
+      users.flush((user, message) -> send(user, message));
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package sharetrace.algorithm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ Counts the messages that are either in flight or buffered by a user. Work is added before it is
+ sent or buffered and a processed message is only removed after the work it produced is added, so
+ the count cannot reach zero while any message remains to be processed.
+*/
+final class WorkCounter {
+
+  private final AtomicLong pending;
+
+  public WorkCounter() {
+    pending = new AtomicLong();
+  }
+
+  public void add(long work) {
+    pending.addAndGet(work);
+  }
+
+  // Returns true if no work remains after processing messages that produced the given work.
+  public boolean complete(long producedWork, long processed) {
+    return pending.addAndGet(producedWork - processed) == 0;
+  }
+
+  public boolean isDone() {
+    return pending.get() == 0;
+  }
+}
@@ -0,0 +1,113 @@
+package sharetrace.algorithm;
+
+import it.unimi.dsi.fastutil.objects.ObjectHeapPriorityQueue;
+import java.util.Comparator;
+import sharetrace.logging.event.Event;
+import sharetrace.logging.event.MetricsEvent;
+import sharetrace.logging.event.lifecycle.CreateUsersEnd;
+import sharetrace.logging.event.lifecycle.CreateUsersStart;
+import sharetrace.logging.event.lifecycle.RiskPropagationEnd;
+import sharetrace.logging.event.lifecycle.RiskPropagationStart;
+import sharetrace.logging.event.lifecycle.SendContactsEnd;
+import sharetrace.logging.event.lifecycle.SendContactsStart;
+import sharetrace.logging.event.lifecycle.SendRiskScoresEnd;
+import sharetrace.logging.event.lifecycle.SendRiskScoresStart;
+import sharetrace.model.Context;
+import sharetrace.model.Parameters;
+import sharetrace.model.factory.RiskScoreFactory;
+import sharetrace.model.graph.ContactNetwork;
+import sharetrace.model.message.ContactsMessage;
+import sharetrace.model.message.RiskScoreMessage;
+
+/*
+ Runs risk propagation in a single thread with a global work list of pending messages. The message
+ with the highest value (then the latest expiry time) is delivered first, so users tend to receive
+ their maximum message before lower ones that would otherwise be forwarded and then superseded.
+ Users are flushed after each delivery since the order of the work list, rather than a flush
+ timeout, determines which messages are coalesced.
+*/
+final class WorkList {
+
+  private static final Comparator<Delivery> HIGHEST_FIRST =
+      Comparator.<Delivery>comparingDouble(delivery -> delivery.message().value())
+          .thenComparingLong(delivery -> delivery.message().expiryTime())
+          .reversed();
+
+  private final Context context;
+  private final Parameters parameters;
+  private final RiskScoreFactory scoreFactory;
+  private final ContactNetwork network;
+  private final Metrics metrics;
+  private final Progress progress;
+  private final ObjectHeapPriorityQueue<Delivery> pending;
+
+  private long lastProgressTime;
+
+  public WorkList(
+      Context context,
+      Parameters parameters,
+      RiskScoreFactory scoreFactory,
+      ContactNetwork network) {
+    this.context = context;
+    this.parameters = parameters;
+    this.scoreFactory = scoreFactory;
+    this.network = network;
+    this.metrics = new Metrics();
+    this.progress = new Progress();
+    this.pending = new ObjectHeapPriorityQueue<>(HIGHEST_FIRST);
+  }
+
+  public void run() {
+    logEvent(new RiskPropagationStart());
+    var users = createUsers();
+    sendContacts(users);
+    sendRiskScores();
+    lastProgressTime = context.systemTimeFactory().getTime();
+    while (!pending.isEmpty()) {
+      var delivery = pending.dequeue();
+      users.receive(delivery.user(), delivery.message());
+      users.flush((user, message) -> pending.enqueue(new Delivery(user, message)));
+      logProgress();
+    }
+    users.stop();
+    logEvent(new RiskPropagationEnd());
+    logEvent(new MetricsEvent(metrics.snapshot()));
+  }
+
+  private Users createUsers() {
+    logEvent(new CreateUsersStart());
+    var users = new Users(0, network.nodes(), context, parameters, metrics, progress);
+    logEvent(new CreateUsersEnd());
+    return users;
+  }
+
+  private void sendContacts(Users users) {
+    logEvent(new SendContactsStart());
+    var expiry = parameters.contactExpiry();
+    for (int i = 0; i < network.nodes(); i++) {
+      users.add(new ContactsMessage(i, network, expiry));
+    }
+    logEvent(new SendContactsEnd());
+  }
+
+  private void sendRiskScores() {
+    logEvent(new SendRiskScoresStart());
+    for (int i = 0; i < network.nodes(); i++) {
+      var score = scoreFactory.getRiskScore(i);
+      pending.enqueue(new Delivery(i, RiskScoreMessage.ofOrigin(score, i)));
+    }
+    logEvent(new SendRiskScoresEnd());
+  }
+
+  private void logProgress() {
+    var time = context.systemTimeFactory().getTime();
+    if (time - lastProgressTime >= parameters.progressInterval().toMillis()) {
+      logEvent(progress.sample());
+      lastProgressTime = time;
+    }
+  }
+
+  private void logEvent(Event event) {
+    context.eventLogger().log(event);
+  }
+}
@@ -28,9 +28,11 @@ public record ContextLoader(ObjectMapper mapper) {
       try {
         var tree = reader.readTree(input);
         var key = tree.get("k").asText();
-        var nodes = tree.get("p").get("network").get("nodes").asInt();
-        var edges = tree.get("p").get("network").get("edges").asInt();
-        return Map.entry(key, new Context(nodes, edges));
+        var network = tree.get("p").get("network");
+        var nodes = network.get("nodes").asInt();
+        var edges = network.get("edges").asInt();
+        var labels = mapper.treeToValue(network.get("labels"), int[].class);
+        return Map.entry(key, new Context(nodes, edges, labels));
       } catch (JsonProcessingException e) {
         throw new UncheckedIOException(e);
       }
@@ -73,7 +73,14 @@ public final class Main {
       Map<String, EventHandler> handlers, Map<String, Context> contexts) {
     var results = new Results();
     handlers.forEach(
-        (key, handler) -> handler.onComplete(results.withScope(key), contexts.get(key)));
+        (key, handler) -> {
+          var context = contexts.get(key);
+          handler.onComplete(results.withScope(key), context);
+          // User results are indexed by user, so the labels map them back to the original ids.
+          if (context != null && context.labels() != null) {
+            results.withScope(key).put("labels", context.labels());
+          }
+        });
     return results;
   }
 
@@ -0,0 +1,30 @@
+package sharetrace.analysis.handler;
+
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import java.util.Map;
+import sharetrace.analysis.model.Context;
+import sharetrace.analysis.model.EventRecord;
+import sharetrace.analysis.model.Results;
+import sharetrace.logging.event.MetricsEvent;
+
+public final class MetricsHandler implements EventHandler {
+
+  private final Map<String, Long> metrics;
+
+  public MetricsHandler() {
+    metrics = new Object2LongOpenHashMap<>();
+  }
+
+  @Override
+  public void onNext(EventRecord record, Context context) {
+    if (record.event() instanceof MetricsEvent e) {
+      e.metrics().forEach((name, value) -> metrics.merge(name, value, Long::sum));
+    }
+  }
+
+  @Override
+  public void onComplete(Results results, Context context) {
+    var scope = results.withScope("metrics");
+    metrics.forEach(scope::put);
+  }
+}
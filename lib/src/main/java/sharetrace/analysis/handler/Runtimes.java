@@ -11,6 +11,8 @@ import sharetrace.logging.event.lifecycle.CreateUsersStart;
 import sharetrace.logging.event.lifecycle.LifecycleEvent;
 import sharetrace.logging.event.lifecycle.RiskPropagationEnd;
 import sharetrace.logging.event.lifecycle.RiskPropagationStart;
+import sharetrace.logging.event.lifecycle.RunEnd;
+import sharetrace.logging.event.lifecycle.RunStart;
 import sharetrace.logging.event.lifecycle.SendContactsEnd;
 import sharetrace.logging.event.lifecycle.SendContactsStart;
 import sharetrace.logging.event.lifecycle.SendRiskScoresEnd;
@@ -47,6 +49,8 @@ public final class Runtimes implements EventHandler {
         .put("SendContacts", getRuntime(SendContactsStart.class, SendContactsEnd.class))
         .put("SendScores", getRuntime(SendRiskScoresStart.class, SendRiskScoresEnd.class))
         .put("RiskPropagation", getRuntime(RiskPropagationStart.class, RiskPropagationEnd.class))
+        .put("Startup", getRuntime(RunStart.class, RiskPropagationStart.class))
+        .put("Teardown", getRuntime(RiskPropagationEnd.class, RunEnd.class))
         .put("MessagePassing", messagePassingRuntime());
   }
 
@@ -0,0 +1,45 @@
+package sharetrace.analysis.handler;
+
+import sharetrace.analysis.model.Context;
+import sharetrace.analysis.model.EventRecord;
+import sharetrace.analysis.model.Results;
+import sharetrace.logging.event.MetricsEvent;
+import sharetrace.logging.event.lifecycle.SendRiskScoresStart;
+import sharetrace.logging.event.user.LastEvent;
+
+// Messages sent by users per second of message passing, which is measured as in Runtimes.
+public final class Throughput implements EventHandler {
+
+  private static final double UNKNOWN_THROUGHPUT = -1;
+
+  private long messagesSent;
+  private long startTime;
+  private long lastEventTime;
+
+  public Throughput() {
+    startTime = Long.MIN_VALUE;
+    lastEventTime = Long.MIN_VALUE;
+  }
+
+  @Override
+  public void onNext(EventRecord record, Context context) {
+    if (record.event() instanceof SendRiskScoresStart) {
+      startTime = record.timestamp();
+    } else if (record.event() instanceof LastEvent e) {
+      lastEventTime = Math.max(lastEventTime, e.timestamp());
+    } else if (record.event() instanceof MetricsEvent e) {
+      messagesSent += e.metrics().getOrDefault("MessagesSent", 0L);
+    }
+  }
+
+  @Override
+  public void onComplete(Results results, Context context) {
+    results.withScope("throughput").put("MessagesPerSecond", messagesPerSecond());
+  }
+
+  private double messagesPerSecond() {
+    var runtime = lastEventTime - startTime;
+    var isLogged = startTime != Long.MIN_VALUE && lastEventTime != Long.MIN_VALUE;
+    return isLogged && runtime > 0 ? 1000d * messagesSent / runtime : UNKNOWN_THROUGHPUT;
+  }
+}
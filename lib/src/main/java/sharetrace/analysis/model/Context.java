@@ -1,3 +1,4 @@
 package sharetrace.analysis.model;
 
-public record Context(int nodes, int edges) {}
+// Labels are the original ids of the users, or null if the users were not renumbered.
+public record Context(int nodes, int edges, int[] labels) {}
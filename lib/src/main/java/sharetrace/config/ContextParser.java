@@ -3,6 +3,7 @@ package sharetrace.config;
 import com.typesafe.config.Config;
 import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import org.apache.commons.math3.random.RandomGenerator;
@@ -13,6 +14,7 @@ import sharetrace.logging.RecordLogger;
 import sharetrace.logging.StandardRecordLoggerBuilder;
 import sharetrace.model.Context;
 import sharetrace.model.ContextBuilder;
+import sharetrace.model.Engine;
 import sharetrace.model.factory.SupplierTimeFactory;
 import sharetrace.model.factory.TimeFactory;
 
@@ -26,6 +28,10 @@ public record ContextParser(Config contextConfig) implements ConfigParser<Contex
         .config(contextConfig)
         .seed(seed)
         .randomGenerator(getRandomGenerator(config, seed))
+        .engine(getEngine(config))
+        .shards(config.getInt("shards"))
+        .batch(config.getBoolean("batch"))
+        .reuseActorSystem(config.getBoolean("reuse-actor-system"))
         .eventLogger(getEventLogger(config))
         .propertyLogger(getPropertyLogger(config))
         .systemTimeFactory(getSystemTimeFactory())
@@ -47,6 +53,18 @@ public record ContextParser(Config contextConfig) implements ConfigParser<Contex
     return generator;
   }
 
+  private Engine getEngine(Config config) {
+    var type = config.getString("engine");
+    return switch (type) {
+      case "actors" -> Engine.ACTORS;
+      case "bsp" -> Engine.BSP;
+      case "priority" -> Engine.PRIORITY;
+      case "virtual-threads" -> Engine.VIRTUAL_THREADS;
+      case "simulation" -> Engine.SIMULATION;
+      default -> throw new IllegalArgumentException(type);
+    };
+  }
+
   private Instant getReferenceTime(Config config) {
     var string = config.getString("reference-time");
     return string.equals("now") ? Instant.now() : Instant.parse(string);
@@ -86,6 +104,7 @@ public record ContextParser(Config contextConfig) implements ConfigParser<Contex
           .key(key)
           .logged(getLogged(config))
           .timeFactory(getSystemTimeFactory())
+          .fields(Map.of())
           .build();
     } else {
       return new NullRecordLogger();
@@ -16,7 +16,10 @@ public record ParametersParser() implements ConfigParser<Parameters> {
         .scoreExpiry(getMillisDuration(config, "score-expiry"))
         .contactExpiry(getMillisDuration(config, "contact-expiry"))
         .flushTimeout(config.getDuration("flush-timeout"))
+        .flushOnDrain(config.getBoolean("flush-on-drain"))
+        .flushBufferLimit(config.getInt("flush-buffer-limit"))
         .idleTimeout(config.getDuration("idle-timeout"))
+        .progressInterval(config.getDuration("progress-interval"))
         .build();
   }
 
@@ -9,6 +9,7 @@ import org.jgrapht.nio.GraphExporter;
 import org.jgrapht.nio.graphml.GraphMLExporter;
 import sharetrace.Buildable;
 import sharetrace.model.graph.ContactNetwork;
+import sharetrace.model.graph.Graphs;
 import sharetrace.model.graph.TemporalEdge;
 
 @SuppressWarnings("unused")
@@ -16,7 +17,7 @@ import sharetrace.model.graph.TemporalEdge;
 public record ContactNetworkExporter(Path directory, String filename) {
 
   public void export(ContactNetwork network) {
-    exporter().exportGraph(network, file(directory, filename));
+    exporter().exportGraph(Graphs.toTemporalGraph(network), file(directory, filename));
   }
 
   private GraphExporter<Integer, TemporalEdge> exporter() {
@@ -3,10 +3,14 @@ package sharetrace.logging;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonSubTypes.Type;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import sharetrace.logging.event.MetricsEvent;
+import sharetrace.logging.event.ProgressEvent;
 import sharetrace.logging.event.lifecycle.CreateUsersEnd;
 import sharetrace.logging.event.lifecycle.CreateUsersStart;
 import sharetrace.logging.event.lifecycle.RiskPropagationEnd;
 import sharetrace.logging.event.lifecycle.RiskPropagationStart;
+import sharetrace.logging.event.lifecycle.RunEnd;
+import sharetrace.logging.event.lifecycle.RunStart;
 import sharetrace.logging.event.lifecycle.SendContactsEnd;
 import sharetrace.logging.event.lifecycle.SendContactsStart;
 import sharetrace.logging.event.lifecycle.SendRiskScoresEnd;
@@ -30,6 +34,10 @@ import sharetrace.logging.event.user.UpdateEvent;
   @Type(value = SendRiskScoresEnd.class, name = "SSE"),
   @Type(value = RiskPropagationStart.class, name = "RPS"),
   @Type(value = RiskPropagationEnd.class, name = "RPE"),
+  @Type(value = RunStart.class, name = "RS"),
+  @Type(value = RunEnd.class, name = "RE"),
+  @Type(value = MetricsEvent.class, name = "M"),
+  @Type(value = ProgressEvent.class, name = "P"),
   @Type(value = ExecutionProperties.class)
 })
 public interface LogRecord {}
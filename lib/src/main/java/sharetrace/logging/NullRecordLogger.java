@@ -4,4 +4,9 @@ public final class NullRecordLogger implements RecordLogger {
 
   @Override
   public void log(LogRecord record) {}
+
+  @Override
+  public boolean isLogged(Class<? extends LogRecord> type) {
+    return false;
+  }
 }
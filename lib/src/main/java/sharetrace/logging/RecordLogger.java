@@ -1,6 +1,16 @@
 package sharetrace.logging;
 
+import java.util.Map;
+
 public interface RecordLogger {
 
   void log(LogRecord record);
+
+  // Allows callers to skip creating records that would not be logged.
+  boolean isLogged(Class<? extends LogRecord> type);
+
+  // Returns a logger that adds the fields to each record that it logs.
+  default RecordLogger withFields(Map<String, String> fields) {
+    return this;
+  }
 }
@@ -1,5 +1,6 @@
 package sharetrace.logging;
 
+import java.util.Map;
 import java.util.Set;
 import net.logstash.logback.argument.StructuredArgument;
 import net.logstash.logback.argument.StructuredArguments;
@@ -9,16 +10,34 @@ import sharetrace.model.factory.TimeFactory;
 
 @Buildable
 public record StandardRecordLogger(
-    Logger logger, String key, Set<Class<? extends LogRecord>> logged, TimeFactory timeFactory)
+    Logger logger,
+    String key,
+    Set<Class<? extends LogRecord>> logged,
+    TimeFactory timeFactory,
+    Map<String, String> fields)
     implements RecordLogger {
 
   @Override
   public void log(LogRecord record) {
-    if (logged.contains(record.getClass())) {
-      logger.info(key, timeField(), recordField(record));
+    if (isLogged(record.getClass())) {
+      logger.info(key, fieldsField(), timeField(), recordField(record));
     }
   }
 
+  @Override
+  public boolean isLogged(Class<? extends LogRecord> type) {
+    return logged.contains(type);
+  }
+
+  @Override
+  public RecordLogger withFields(Map<String, String> fields) {
+    return StandardRecordLoggerBuilder.builder(this).fields(fields).build();
+  }
+
+  private StructuredArgument fieldsField() {
+    return StructuredArguments.entries(fields);
+  }
+
   private StructuredArgument timeField() {
     return StructuredArguments.keyValue("t", timeFactory.getTime());
   }
@@ -0,0 +1,6 @@
+package sharetrace.logging.event;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Map;
+
+public record MetricsEvent(@JsonProperty("m") Map<String, Long> metrics) implements Event {}
@@ -0,0 +1,9 @@
+package sharetrace.logging.event;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record ProgressEvent(
+    @JsonProperty("u") long updates,
+    @JsonProperty("a") long activeUsers,
+    @JsonProperty("l") long lastUpdateTime)
+    implements Event {}
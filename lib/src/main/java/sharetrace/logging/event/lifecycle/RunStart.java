@@ -0,0 +1,3 @@
+package sharetrace.logging.event.lifecycle;
+
+public record RunStart() implements LifecycleEvent {}
@@ -1,8 +1,8 @@
 package sharetrace.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.collect.Range;
 import com.typesafe.config.Config;
-import java.util.Map;
 import org.apache.commons.math3.random.RandomGenerator;
 import sharetrace.Buildable;
 import sharetrace.logging.RecordLogger;
@@ -13,9 +13,18 @@ public record Context(
     long referenceTime,
     long seed,
     RandomGenerator randomGenerator,
+    Engine engine,
+    int shards,
+    boolean batch,
+    boolean reuseActorSystem,
     @JsonIgnore Config config,
     @JsonIgnore TimeFactory userTimeFactory,
     @JsonIgnore TimeFactory systemTimeFactory,
-    @JsonIgnore Map<String, String> mdc,
     @JsonIgnore RecordLogger propertyLogger,
-    @JsonIgnore RecordLogger eventLogger) {}
+    @JsonIgnore RecordLogger eventLogger) {
+
+  public Context {
+    // 0 means that each user is hosted by its own actor or virtual thread.
+    Ranges.check("shards", shards, Range.atLeast(0));
+  }
+}
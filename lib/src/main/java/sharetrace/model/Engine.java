@@ -0,0 +1,15 @@
+package sharetrace.model;
+
+// How risk propagation is executed.
+public enum Engine {
+  // Each user, or shard of users, is an actor.
+  ACTORS,
+  // Partitions of users are processed in bulk-synchronous supersteps.
+  BSP,
+  // Messages are delivered in a single thread in order of decreasing value.
+  PRIORITY,
+  // Each user, or shard of users, is a virtual thread.
+  VIRTUAL_THREADS,
+  // Users are simulated in a single thread on a virtual clock.
+  SIMULATION
+}
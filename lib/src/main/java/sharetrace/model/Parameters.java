@@ -13,7 +13,10 @@ public record Parameters(
     long scoreExpiry,
     long contactExpiry,
     Duration flushTimeout,
-    Duration idleTimeout) {
+    boolean flushOnDrain,
+    int flushBufferLimit,
+    Duration idleTimeout,
+    Duration progressInterval) {
 
   public Parameters {
     // Greater than 0 to avoid divide-by-zero errors; less than 1 to ensure finite runtime.
@@ -25,6 +28,9 @@ public record Parameters(
     Ranges.check("contactExpiry", contactExpiry, Range.atLeast(1L));
     // 1 millisecond is the minimum duration supported by Akka for scheduled messages.
     Ranges.check("flushTimeout", flushTimeout, Range.atLeast(Duration.ofMillis(1L)));
+    // 0 means that the number of buffered messages does not trigger a flush.
+    Ranges.check("flushBufferLimit", flushBufferLimit, Range.atLeast(0));
     Ranges.check("idleTimeout", idleTimeout, Range.atLeast(Duration.ofMillis(1L)));
+    Ranges.check("progressInterval", progressInterval, Range.atLeast(Duration.ofMillis(1L)));
   }
 }
@@ -4,9 +4,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.jgrapht.Graph;
 import org.jgrapht.generate.GraphGenerator;
+import sharetrace.model.graph.CompactContactNetwork;
 import sharetrace.model.graph.ContactNetwork;
 import sharetrace.model.graph.Graphs;
-import sharetrace.model.graph.SimpleContactNetwork;
 import sharetrace.model.graph.TemporalEdge;
 
 public interface ContactNetworkFactory {
@@ -21,9 +21,15 @@ public interface ContactNetworkFactory {
   GraphGenerator<Integer, TemporalEdge, ?> graphGenerator();
 
   default ContactNetwork newContactNetwork(Graph<Integer, TemporalEdge> target) {
-    return new SimpleContactNetwork(IdFactory.newId(), target);
+    return CompactContactNetwork.of(IdFactory.newId(), target);
   }
 
+  /*
+   JGraphT generators only write into a graph, so the whole graph, with its boxed vertices and edge
+   objects, is built before it is frozen into the compact form. Only the compact network outlives
+   this call, but the peak memory of generating a network is still that of the graph. Contact files
+   are parsed directly into edge arrays instead.
+  */
   @JsonIgnore
   default ContactNetwork getContactNetwork() {
     var target = newTarget();
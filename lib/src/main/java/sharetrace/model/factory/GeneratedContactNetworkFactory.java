@@ -7,14 +7,16 @@ public interface GeneratedContactNetworkFactory extends ContactNetworkFactory {
 
   TimeFactory timeFactory();
 
+  // Contact times are set on the generated graph, which is then frozen like any other.
   @Override
   default ContactNetwork getContactNetwork() {
-    var network = ContactNetworkFactory.super.getContactNetwork();
-    for (var edge : network.edgeSet()) {
-      int source = network.getEdgeSource(edge);
-      int target = network.getEdgeTarget(edge);
-      Graphs.addTemporalEdge(network, source, target, timeFactory().getTime());
+    var target = newTarget();
+    graphGenerator().generateGraph(target);
+    for (var edge : target.edgeSet()) {
+      int source = target.getEdgeSource(edge);
+      int destination = target.getEdgeTarget(edge);
+      Graphs.addTemporalEdge(target, source, destination, timeFactory().getTime());
     }
-    return network;
+    return newContactNetwork(target);
   }
 }
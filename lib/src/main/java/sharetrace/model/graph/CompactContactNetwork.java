@@ -0,0 +1,118 @@
+package sharetrace.model.graph;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import org.jgrapht.Graph;
+
+/*
+ An immutable contact network in compressed sparse row form. The contacts of user i are stored in
+ the range [offsets[i], offsets[i + 1]) of the contact and time arrays, so each contact costs 24
+ bytes (12 per endpoint) and no boxing.
+*/
+public final class CompactContactNetwork implements ContactNetwork {
+
+  private final String id;
+  private final int[] offsets;
+  private final int[] contacts;
+  private final long[] contactTimes;
+  private final int[] labels;
+
+  private CompactContactNetwork(
+      String id, int[] offsets, int[] contacts, long[] contactTimes, int[] labels) {
+    this.id = id;
+    this.offsets = offsets;
+    this.contacts = contacts;
+    this.contactTimes = contactTimes;
+    this.labels = labels;
+  }
+
+  // Assumes the vertices are numbered from 0.
+  public static CompactContactNetwork of(String id, Graph<Integer, TemporalEdge> graph) {
+    var edges = graph.edgeSet().size();
+    var sources = new int[edges];
+    var targets = new int[edges];
+    var times = new long[edges];
+    var e = 0;
+    for (var edge : graph.edgeSet()) {
+      sources[e] = graph.getEdgeSource(edge);
+      targets[e] = graph.getEdgeTarget(edge);
+      times[e++] = edge.getTime();
+    }
+    return of(id, graph.vertexSet().size(), sources, targets, times);
+  }
+
+  // Each contact must be given once, as an edge between distinct users.
+  public static CompactContactNetwork of(
+      String id, int nodes, int[] sources, int[] targets, long[] times) {
+    var offsets = new int[nodes + 1];
+    for (int e = 0; e < sources.length; e++) {
+      offsets[sources[e] + 1]++;
+      offsets[targets[e] + 1]++;
+    }
+    for (int i = 0; i < nodes; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    var contacts = new int[offsets[nodes]];
+    var contactTimes = new long[contacts.length];
+    var sizes = new int[nodes];
+    for (int e = 0; e < sources.length; e++) {
+      int i = sources[e];
+      int j = targets[e];
+      var k = offsets[i] + sizes[i]++;
+      contacts[k] = j;
+      contactTimes[k] = times[e];
+      k = offsets[j] + sizes[j]++;
+      contacts[k] = i;
+      contactTimes[k] = times[e];
+    }
+    var contactBuffer = IntBuffer.wrap(contacts);
+    var contactTimeBuffer = LongBuffer.wrap(contactTimes);
+    for (int i = 0; i < nodes; i++) {
+      ContactRows.sortByTime(contactBuffer, contactTimeBuffer, offsets[i], offsets[i + 1]);
+    }
+    return new CompactContactNetwork(id, offsets, contacts, contactTimes, null);
+  }
+
+  public CompactContactNetwork withLabels(int[] labels) {
+    if (labels.length != nodes()) {
+      throw new IllegalArgumentException(
+          "labels must have %s elements; got %s".formatted(nodes(), labels.length));
+    }
+    return new CompactContactNetwork(id, offsets, contacts, contactTimes, labels);
+  }
+
+  @Override
+  public String id() {
+    return id;
+  }
+
+  @Override
+  public int nodes() {
+    return offsets.length - 1;
+  }
+
+  @Override
+  public int edges() {
+    return contacts.length / 2;
+  }
+
+  @Override
+  public int[] labels() {
+    return labels;
+  }
+
+  @Override
+  public int degree(int user) {
+    return offsets[user + 1] - offsets[user];
+  }
+
+  @Override
+  public int contact(int user, int i) {
+    return contacts[offsets[user] + i];
+  }
+
+  @Override
+  public long contactTime(int user, int i) {
+    return contactTimes[offsets[user] + i];
+  }
+}
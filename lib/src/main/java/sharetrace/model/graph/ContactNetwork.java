@@ -1,10 +1,29 @@
 package sharetrace.model.graph;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import org.jgrapht.Graph;
 
-public interface ContactNetwork extends Graph<Integer, TemporalEdge> {
+// Users are numbered from 0 to nodes() - 1 and the contacts of each user are in order of time.
+public interface ContactNetwork {
 
   @JsonProperty
   String id();
+
+  @JsonProperty
+  int nodes();
+
+  @JsonProperty
+  int edges();
+
+  // The original id of each user, or null if the users were not renumbered.
+  @JsonProperty
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  int[] labels();
+
+  int degree(int user);
+
+  // Returns the i-th contact of the user.
+  int contact(int user, int i);
+
+  long contactTime(int user, int i);
 }
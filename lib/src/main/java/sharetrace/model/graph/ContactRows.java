@@ -0,0 +1,27 @@
+package sharetrace.model.graph;
+
+import it.unimi.dsi.fastutil.Arrays;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+// Operations on the rows of a contact network in compressed sparse row form.
+final class ContactRows {
+
+  private ContactRows() {}
+
+  // Users store their contacts in order of time, so sorting makes adding them cheaper.
+  public static void sortByTime(IntBuffer contacts, LongBuffer contactTimes, int from, int to) {
+    Arrays.quickSort(
+        from,
+        to,
+        (a, b) -> Long.compare(contactTimes.get(a), contactTimes.get(b)),
+        (a, b) -> {
+          var contact = contacts.get(a);
+          contacts.put(a, contacts.get(b));
+          contacts.put(b, contact);
+          var time = contactTimes.get(a);
+          contactTimes.put(a, contactTimes.get(b));
+          contactTimes.put(b, time);
+        });
+  }
+}
@@ -26,6 +26,24 @@ public final class Graphs {
     }
   }
 
+  public static Graph<Integer, TemporalEdge> toTemporalGraph(ContactNetwork network) {
+    var graph = newTemporalGraph();
+    addContacts(graph, network);
+    return graph;
+  }
+
+  public static void addContacts(Graph<Integer, TemporalEdge> graph, ContactNetwork network) {
+    for (int i = 0; i < network.nodes(); i++) {
+      graph.addVertex(i);
+      for (int j = 0; j < network.degree(i); j++) {
+        var contact = network.contact(i, j);
+        if (contact < i) {
+          addTemporalEdge(graph, i, contact, network.contactTime(i, j));
+        }
+      }
+    }
+  }
+
   public static Graph<Integer, TemporalEdge> newTemporalGraph() {
     return newGraph(DefaultGraphType.simple().asWeighted(), TemporalEdge::new);
   }
@@ -0,0 +1,316 @@
+package sharetrace.model.graph;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ A contact network that is memory-mapped from a directory, so its contacts are not on the heap. The
+ users are split into contiguous partitions, each of which is stored in its own file in compressed
+ sparse row form: the row offsets, the contacts, and then the contact times. Partitions are small
+ enough for each section to be mapped with one buffer. The metadata file holds the source file that
+ the network was ingested from, the number of users and contacts, the latest contact time, the
+ partition bounds, and the labels of the users. It is written last, so a directory without it is
+ incomplete.
+*/
+public final class MappedContactNetwork implements ContactNetwork {
+
+  private static final String METADATA = "network.bin";
+  private static final int MAX_PARTITION_SIZE = 1 << 27;
+
+  private final String id;
+  private final int edges;
+  private final long offset;
+  private final int[] bounds;
+  private final int[] labels;
+  private final IntBuffer[] offsets;
+  private final IntBuffer[] contacts;
+  private final LongBuffer[] contactTimes;
+
+  private MappedContactNetwork(
+      String id,
+      int edges,
+      long offset,
+      int[] bounds,
+      int[] labels,
+      IntBuffer[] offsets,
+      IntBuffer[] contacts,
+      LongBuffer[] contactTimes) {
+    this.id = id;
+    this.edges = edges;
+    this.offset = offset;
+    this.bounds = bounds;
+    this.labels = labels;
+    this.offsets = offsets;
+    this.contacts = contacts;
+    this.contactTimes = contactTimes;
+  }
+
+  // Returns the source of the network in the directory, or null if there is no network.
+  public static Source source(Path directory) {
+    return Files.exists(directory.resolve(METADATA)) ? Source.read(metadata(directory)) : null;
+  }
+
+  // Contact times are shifted so that the newest contact time is the reference time.
+  public static MappedContactNetwork open(Path directory, String id, long referenceTime) {
+    try {
+      var metadata = metadata(directory);
+      Source.read(metadata);
+      var nodes = metadata.getInt();
+      var edges = metadata.getInt();
+      var maxContactTime = metadata.getLong();
+      var bounds = new int[metadata.getInt() + 1];
+      metadata.asIntBuffer().get(bounds);
+      metadata.position(metadata.position() + 4 * bounds.length);
+      var labels = new int[nodes];
+      metadata.asIntBuffer().get(labels);
+      var partitions = bounds.length - 1;
+      var offsets = new IntBuffer[partitions];
+      var contacts = new IntBuffer[partitions];
+      var contactTimes = new LongBuffer[partitions];
+      for (int p = 0; p < partitions; p++) {
+        var users = bounds[p + 1] - bounds[p];
+        try (var channel = FileChannel.open(partitionFile(directory, p))) {
+          var mode = FileChannel.MapMode.READ_ONLY;
+          offsets[p] = channel.map(mode, 0, 4L * (users + 1)).asIntBuffer();
+          var size = offsets[p].get(users);
+          contacts[p] = channel.map(mode, 4L * (users + 1), 4L * size).asIntBuffer();
+          contactTimes[p] = channel.map(mode, 4L * (users + 1 + size), 8L * size).asLongBuffer();
+        }
+      }
+      var offset = Math.subtractExact(referenceTime, maxContactTime);
+      return new MappedContactNetwork(
+          id, edges, offset, bounds, labels, offsets, contacts, contactTimes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Users must be renumbered from 0 in order of their labels, and have the given degrees.
+  public static Writer writer(Path directory, Source source, int[] labels, int[] degrees) {
+    return new Writer(directory, source, labels, degrees);
+  }
+
+  private static ByteBuffer metadata(Path directory) {
+    try (var channel = FileChannel.open(directory.resolve(METADATA))) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Path partitionFile(Path directory, int partition) {
+    return directory.resolve("partition-" + partition + ".bin");
+  }
+
+  private static int partition(int[] bounds, int user) {
+    var p = IntArrays.binarySearch(bounds, user);
+    return p >= 0 ? p : -p - 2;
+  }
+
+  @Override
+  public String id() {
+    return id;
+  }
+
+  @Override
+  public int nodes() {
+    return labels.length;
+  }
+
+  @Override
+  public int edges() {
+    return edges;
+  }
+
+  @Override
+  public int[] labels() {
+    return labels;
+  }
+
+  @Override
+  public int degree(int user) {
+    var p = partition(bounds, user);
+    var i = user - bounds[p];
+    return offsets[p].get(i + 1) - offsets[p].get(i);
+  }
+
+  @Override
+  public int contact(int user, int i) {
+    var p = partition(bounds, user);
+    return contacts[p].get(offsets[p].get(user - bounds[p]) + i);
+  }
+
+  @Override
+  public long contactTime(int user, int i) {
+    var p = partition(bounds, user);
+    return contactTimes[p].get(offsets[p].get(user - bounds[p]) + i) + offset;
+  }
+
+  /*
+   Writes each contact to the next free position of the rows of its users, so only the row positions
+   are on the heap. The rows are sorted by time once every contact is added.
+  */
+  public static final class Writer {
+
+    private final Path directory;
+    private final Source source;
+    private final int[] labels;
+    private final int[] bounds;
+    private final int[] positions;
+    private final IntBuffer[] offsets;
+    private final IntBuffer[] contacts;
+    private final LongBuffer[] contactTimes;
+    private final MappedByteBuffer[] buffers;
+
+    private int edges;
+    private long maxContactTime;
+
+    private Writer(Path directory, Source source, int[] labels, int[] degrees) {
+      try {
+        Files.deleteIfExists(directory.resolve(METADATA));
+        this.directory = directory;
+        this.source = source;
+        this.labels = labels;
+        this.bounds = partitionBounds(degrees);
+        this.positions = new int[degrees.length];
+        var partitions = bounds.length - 1;
+        // Remove the partitions of a previous network that had more of them.
+        for (int p = partitions; Files.deleteIfExists(partitionFile(directory, p)); p++) {}
+        this.offsets = new IntBuffer[partitions];
+        this.contacts = new IntBuffer[partitions];
+        this.contactTimes = new LongBuffer[partitions];
+        this.buffers = new MappedByteBuffer[3 * partitions];
+        for (int p = 0; p < partitions; p++) {
+          var users = bounds[p + 1] - bounds[p];
+          var size = 0;
+          for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+            positions[i] = size;
+            size += degrees[i];
+          }
+          try (var channel = newPartitionFile(p)) {
+            var mode = FileChannel.MapMode.READ_WRITE;
+            buffers[3 * p] = channel.map(mode, 0, 4L * (users + 1));
+            buffers[3 * p + 1] = channel.map(mode, 4L * (users + 1), 4L * size);
+            buffers[3 * p + 2] = channel.map(mode, 4L * (users + 1 + size), 8L * size);
+          }
+          offsets[p] = buffers[3 * p].asIntBuffer();
+          contacts[p] = buffers[3 * p + 1].asIntBuffer();
+          contactTimes[p] = buffers[3 * p + 2].asLongBuffer();
+          for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+            offsets[p].put(i - bounds[p], positions[i]);
+          }
+          offsets[p].put(users, size);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    // Returns the first user of each partition, followed by the number of users.
+    private static int[] partitionBounds(int[] degrees) {
+      var bounds = new IntArrayList();
+      bounds.add(0);
+      var users = 0;
+      var size = 0;
+      for (int i = 0; i < degrees.length; i++) {
+        if (users > 0 && (users == MAX_PARTITION_SIZE || size + degrees[i] > MAX_PARTITION_SIZE)) {
+          bounds.add(i);
+          users = 0;
+          size = 0;
+        }
+        users++;
+        size += degrees[i];
+      }
+      if (users > 0) {
+        bounds.add(degrees.length);
+      }
+      return bounds.toIntArray();
+    }
+
+    // Each contact must be added once, as an edge between distinct users.
+    public void add(int v1, int v2, long contactTime) {
+      var p1 = partition(bounds, v1);
+      var p2 = partition(bounds, v2);
+      contacts[p1].put(positions[v1], v2);
+      contactTimes[p1].put(positions[v1]++, contactTime);
+      contacts[p2].put(positions[v2], v1);
+      contactTimes[p2].put(positions[v2]++, contactTime);
+      edges = Math.addExact(edges, 1);
+      maxContactTime = Math.max(maxContactTime, contactTime);
+    }
+
+    public void finish() {
+      for (int p = 0; p < bounds.length - 1; p++) {
+        for (int i = 0; i < bounds[p + 1] - bounds[p]; i++) {
+          ContactRows.sortByTime(
+              contacts[p], contactTimes[p], offsets[p].get(i), offsets[p].get(i + 1));
+        }
+      }
+      for (var buffer : buffers) {
+        buffer.force();
+      }
+      writeMetadata();
+    }
+
+    private void writeMetadata() {
+      var path = source.path().getBytes(StandardCharsets.UTF_8);
+      var size = Source.BYTES + path.length + 4 * (5 + bounds.length + labels.length);
+      var metadata = ByteBuffer.allocate(size);
+      metadata.putInt(path.length).put(path).putLong(source.size()).putLong(source.lastModified());
+      metadata.putInt(labels.length);
+      metadata.putInt(edges);
+      metadata.putLong(maxContactTime);
+      metadata.putInt(bounds.length - 1);
+      metadata.asIntBuffer().put(bounds).put(labels);
+      try {
+        var file = directory.resolve(METADATA + ".tmp");
+        Files.write(file, metadata.array());
+        Files.move(file, directory.resolve(METADATA));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private FileChannel newPartitionFile(int partition) throws IOException {
+      return FileChannel.open(
+          partitionFile(directory, partition),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+    }
+  }
+
+  // The file that a network was ingested from, as it was when ingestion started.
+  public record Source(String path, long size, long lastModified) {
+
+    private static final int BYTES = 20;
+
+    public static Source of(Path file) {
+      try {
+        var path = file.toAbsolutePath().normalize().toString();
+        return new Source(path, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private static Source read(ByteBuffer metadata) {
+      var path = new byte[metadata.getInt()];
+      metadata.get(path);
+      return new Source(
+          new String(path, StandardCharsets.UTF_8), metadata.getLong(), metadata.getLong());
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package sharetrace.model.message;
+
+// Messages for users hosted by a user actor, where the i-th message is for users[i].
+public record BatchMessage(int[] users, RiskScoreMessage[] messages) implements UserMessage {
+
+  public int size() {
+    return users.length;
+  }
+}
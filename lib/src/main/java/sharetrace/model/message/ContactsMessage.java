@@ -0,0 +1,24 @@
+package sharetrace.model.message;
+
+import sharetrace.model.graph.ContactNetwork;
+
+// The contacts of a user, in order of time.
+public record ContactsMessage(int user, ContactNetwork network, long expiry)
+    implements UserMessage {
+
+  public int size() {
+    return network.degree(user);
+  }
+
+  public int id(int i) {
+    return network.contact(user, i);
+  }
+
+  public long timestamp(int i) {
+    return network.contactTime(user, i);
+  }
+
+  public long expiryTime(int i) {
+    return Math.addExact(timestamp(i), expiry);
+  }
+}
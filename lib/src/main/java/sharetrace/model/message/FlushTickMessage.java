@@ -0,0 +1,5 @@
+package sharetrace.model.message;
+
+public enum FlushTickMessage implements MonitorMessage {
+  INSTANCE
+}
@@ -1,34 +1,44 @@
 package sharetrace.model.message;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import sharetrace.model.RiskScore;
 import sharetrace.model.TemporalScore;
 
+/*
+ The score is stored as primitive components so that a transmitted message is a single allocation.
+ It is still logged and parsed as a nested risk score.
+*/
+@JsonIgnoreProperties({"v", "t", "expiryTime", "sender"})
+@JsonPropertyOrder({"s", "o"})
 public record RiskScoreMessage(
-    @JsonProperty("s") RiskScore score, @JsonIgnore int sender, @JsonProperty("o") int origin)
+    double value, long timestamp, long expiryTime, int sender, @JsonProperty("o") int origin)
     implements TemporalScore, UserMessage {
 
   public static final RiskScoreMessage NULL = ofOrigin(RiskScore.MIN, -1);
 
+  public RiskScoreMessage(RiskScore score, int sender, int origin) {
+    this(score.value(), score.timestamp(), score.expiryTime(), sender, origin);
+  }
+
   public static RiskScoreMessage ofOrigin(RiskScore score, int origin) {
     return new RiskScoreMessage(score, origin, origin);
   }
 
-  @Override
-  @JsonIgnore
-  public double value() {
-    return score.value();
+  @JsonCreator
+  private static RiskScoreMessage fromJson(
+      @JsonProperty("s") RiskScore score, @JsonProperty("o") int origin) {
+    return new RiskScoreMessage(score, 0, origin);
   }
 
-  @Override
-  @JsonIgnore
-  public long timestamp() {
-    return score.timestamp();
+  @JsonProperty("s")
+  public RiskScore score() {
+    return new RiskScore(value, timestamp, expiryTime);
   }
 
-  @Override
-  public long expiryTime() {
-    return score.expiryTime();
+  public RiskScoreMessage withValue(double value, int sender) {
+    return new RiskScoreMessage(value, timestamp, expiryTime, sender, origin);
   }
 }
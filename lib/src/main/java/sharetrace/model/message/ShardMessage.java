@@ -0,0 +1,4 @@
+package sharetrace.model.message;
+
+// A message for one of the users hosted by a user actor.
+public record ShardMessage(int user, RiskScoreMessage message) implements UserMessage {}
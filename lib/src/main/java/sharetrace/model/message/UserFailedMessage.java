@@ -0,0 +1,4 @@
+package sharetrace.model.message;
+
+// Sent by a user actor that fails, so that the run fails without watching every user.
+public record UserFailedMessage(String user, Throwable cause) implements MonitorMessage {}
@@ -1,5 +0,0 @@
-package sharetrace.model.message;
-
-public enum UserUpdatedMessage implements MonitorMessage {
-  INSTANCE
-}
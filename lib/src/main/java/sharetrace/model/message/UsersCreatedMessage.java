@@ -0,0 +1,5 @@
+package sharetrace.model.message;
+
+public enum UsersCreatedMessage implements MonitorMessage {
+  INSTANCE
+}
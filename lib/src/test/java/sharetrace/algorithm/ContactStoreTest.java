@@ -0,0 +1,219 @@
+package sharetrace.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import sharetrace.model.Parameters;
+import sharetrace.model.RiskScore;
+import sharetrace.model.message.RiskScoreMessage;
+
+class ContactStoreTest {
+
+  private static final long TIME_BUFFER = 20;
+
+  @ParameterizedTest
+  @ValueSource(doubles = {0.5, 1})
+  void sendsTheSameMessagesAsVisitingEveryContact(double sendCoefficient) {
+    var random = new Random(1);
+    var parameters = parameters(sendCoefficient);
+    var timeFactory = new ManualTimeFactory();
+    var contacts = new ContactStore(parameters, timeFactory);
+    var scores = new RiskScoreMessageStore(timeFactory);
+    var expected = new VisitingContactStore(parameters, timeFactory);
+    var expectedScores = new RiskScoreMessageStore(timeFactory);
+    for (int op = 0; op < 50_000; op++) {
+      var choice = random.nextInt(20);
+      var currentTime = timeFactory.getTime();
+      if (choice < 6) {
+        var id = random.nextInt(50);
+        var timestamp = currentTime + random.nextInt(60) - 30;
+        var expiryTime = timestamp + 1 + random.nextInt(80);
+        var slot = contacts.add(id, timestamp, expiryTime);
+        contacts.apply(slot, scores);
+        expected.add(id, timestamp, expiryTime);
+        expected.apply(id, expectedScores);
+      } else if (choice < 16) {
+        // Few distinct values so that messages often tie with send thresholds.
+        var value = random.nextInt(8) / 8d;
+        var timestamp = currentTime + random.nextInt(60) - 30;
+        var expiryTime = timestamp + 1 + random.nextInt(80);
+        var message = new RiskScoreMessage(value, timestamp, expiryTime, op, op);
+        scores.add(message);
+        contacts.refresh();
+        contacts.apply(message, scores);
+        expectedScores.add(message);
+        expected.refresh();
+        expected.apply(message, expectedScores);
+      } else if (choice < 18) {
+        var sent = new Int2ObjectOpenHashMap<RiskScoreMessage>();
+        contacts.flush(sent::put);
+        contacts.refresh();
+        assertEquals(expected.flush(), sent);
+        expected.refresh();
+      } else {
+        timeFactory.advance(random.nextInt(20));
+      }
+      assertEquals(expected.contacts.size(), contacts.size());
+      assertEquals(expected.bufferedCount(), contacts.bufferedCount());
+    }
+  }
+
+  @Test
+  void skipsEveryContactAboveThreshold() {
+    var timeFactory = new ManualTimeFactory();
+    var contacts = newContacts(timeFactory, 7);
+    var scores = new RiskScoreMessageStore(timeFactory);
+    var high = new RiskScoreMessage(0.9, 50, 1_000, 0, 0);
+    scores.add(high);
+    contacts.apply(high, scores);
+    assertEquals(7, contacts.visits());
+    var low = new RiskScoreMessage(0.5, 50, 1_000, 1, 1);
+    scores.add(low);
+    contacts.apply(low, scores);
+    assertEquals(7, contacts.visits());
+    assertEquals(7, contacts.skips());
+    assertEquals(7, contacts.bufferedCount());
+    var sent = new Int2ObjectOpenHashMap<RiskScoreMessage>();
+    contacts.flush(sent::put);
+    assertEquals(7, sent.size());
+    sent.values().forEach(message -> assertSame(high, message));
+  }
+
+  @Test
+  void visitsOnlyContactBelowThreshold() {
+    var timeFactory = new ManualTimeFactory();
+    var contacts = newContacts(timeFactory, 7);
+    var scores = new RiskScoreMessageStore(timeFactory);
+    var high = new RiskScoreMessage(0.9, 50, 1_000, 0, 0);
+    scores.add(high);
+    contacts.apply(high, scores);
+    contacts.flush((user, message) -> {});
+    // A new contact has a reset threshold and is ordered between the others.
+    contacts.add(7, 125, 1_000);
+    var low = new RiskScoreMessage(0.5, 50, 1_000, 1, 1);
+    contacts.apply(low, scores);
+    assertEquals(8, contacts.visits());
+    assertEquals(7, contacts.skips());
+    var sent = new Int2ObjectOpenHashMap<RiskScoreMessage>();
+    contacts.flush(sent::put);
+    assertEquals(Map.of(7, low), sent);
+  }
+
+  // The contacts have relevant time bounds from 120 to 180.
+  private static ContactStore newContacts(ManualTimeFactory timeFactory, int size) {
+    var contacts = new ContactStore(parameters(1), timeFactory);
+    for (int id = 0; id < size; id++) {
+      contacts.add(id, 100 + 10 * id, 1_000);
+    }
+    return contacts;
+  }
+
+  private static Parameters parameters(double sendCoefficient) {
+    var duration = Duration.ofMillis(1);
+    return new Parameters(
+        0.8, sendCoefficient, 0.01, TIME_BUFFER, 1, 1, duration, false, 0, duration, duration);
+  }
+
+  // The contact store before the tournament tree, which visited every relevant contact.
+  private static final class VisitingContactStore {
+
+    private final double sendCoefficient;
+    private final double tolerance;
+    private final ManualTimeFactory timeFactory;
+    private final Int2ObjectMap<Contact> contacts;
+
+    VisitingContactStore(Parameters parameters, ManualTimeFactory timeFactory) {
+      this.sendCoefficient = parameters.sendCoefficient();
+      this.tolerance = parameters.tolerance();
+      this.timeFactory = timeFactory;
+      this.contacts = new Int2ObjectOpenHashMap<>();
+    }
+
+    void add(int id, long timestamp, long expiryTime) {
+      var contact = contacts.get(id);
+      if (contact == null) {
+        contact = new Contact();
+        contact.sendThreshold = RiskScore.MIN.value();
+        contact.sendThresholdExpiryTime = Long.MAX_VALUE;
+        contacts.put(id, contact);
+      } else if (timestamp <= contact.timestamp) {
+        return;
+      }
+      contact.timestamp = timestamp;
+      contact.expiryTime = expiryTime;
+    }
+
+    void apply(RiskScoreMessage message, RiskScoreMessageStore scores) {
+      for (var contact : contacts.values()) {
+        if (message.timestamp() < contact.timestamp + TIME_BUFFER) {
+          apply(contact, message, scores);
+        }
+      }
+    }
+
+    void apply(int id, RiskScoreMessageStore scores) {
+      var contact = contacts.get(id);
+      apply(contact, scores.max(contact.timestamp + TIME_BUFFER), scores);
+    }
+
+    Int2ObjectMap<RiskScoreMessage> flush() {
+      var sent = new Int2ObjectOpenHashMap<RiskScoreMessage>();
+      for (var entry : contacts.int2ObjectEntrySet()) {
+        var contact = entry.getValue();
+        if (contact.buffered != null) {
+          sent.put(entry.getIntKey(), contact.buffered);
+          contact.buffered = null;
+        }
+      }
+      return sent;
+    }
+
+    void refresh() {
+      var currentTime = timeFactory.getTime();
+      contacts.values().removeIf(contact -> contact.expiryTime < currentTime);
+    }
+
+    int bufferedCount() {
+      return (int) contacts.values().stream().filter(contact -> contact.buffered != null).count();
+    }
+
+    private void apply(Contact contact, RiskScoreMessage message, RiskScoreMessageStore scores) {
+      if (contact.sendThresholdExpiryTime < timeFactory.getTime()) {
+        var max = scores.max(contact.timestamp + TIME_BUFFER);
+        if (max != RiskScoreMessage.NULL) {
+          setThreshold(contact, max);
+        } else {
+          contact.sendThreshold = RiskScore.MIN.value();
+          contact.sendThresholdExpiryTime = Long.MAX_VALUE;
+        }
+      }
+      if (message.value() > contact.sendThreshold
+          && message.timestamp() < contact.timestamp + TIME_BUFFER) {
+        setThreshold(contact, message);
+        contact.buffered = message;
+      }
+    }
+
+    private void setThreshold(Contact contact, RiskScoreMessage message) {
+      contact.sendThreshold = message.value() * sendCoefficient + tolerance;
+      contact.sendThresholdExpiryTime = message.expiryTime();
+    }
+  }
+
+  private static final class Contact {
+
+    private long timestamp;
+    private long expiryTime;
+    private double sendThreshold;
+    private long sendThresholdExpiryTime;
+    private RiskScoreMessage buffered;
+  }
+}
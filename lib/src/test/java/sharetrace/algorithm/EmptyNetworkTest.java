@@ -0,0 +1,22 @@
+package sharetrace.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import sharetrace.model.Engine;
+
+class EmptyNetworkTest {
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 4})
+  void actorsEndWithoutUsers(int shards) {
+    var scores =
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(5),
+            () -> Runs.exposureScores(Engine.ACTORS, shards, false, false, Runs.emptyNetwork()));
+    assertArrayEquals(new double[0], scores);
+  }
+}
@@ -0,0 +1,159 @@
+package sharetrace.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ExpiryIndexTest {
+
+  @Test
+  void removesEntriesInOrderOfExpiryTime() {
+    var random = new Random(1);
+    var index = new ExpiryIndex();
+    var expected = new ArrayList<Entry>();
+    for (int op = 0; op < 50_000; op++) {
+      var choice = random.nextInt(10);
+      if (choice < 5) {
+        var entry = new Entry(random.nextInt(100), random.nextInt(200));
+        index.add(entry.key, entry.expiryTime);
+        expected.add(entry);
+      } else if (choice < 9) {
+        var min = expected.stream().min(Comparator.comparingLong(Entry::expiryTime));
+        assertEquals(min.map(Entry::expiryTime).orElse(Long.MAX_VALUE), index.minExpiryTime());
+        if (min.isPresent()) {
+          // Entries that tie by expiry time may be removed in any order.
+          assertTrue(expected.remove(new Entry(index.minKey(), index.minExpiryTime())));
+          index.removeMin();
+        }
+      } else {
+        var modulus = 2 + random.nextInt(3);
+        index.retainIf((key, expiryTime) -> (key + expiryTime) % modulus != 0);
+        expected.removeIf(entry -> (entry.key + entry.expiryTime) % modulus == 0);
+      }
+      assertEquals(expected.size(), index.size());
+    }
+  }
+
+  @Test
+  void refreshEvictsExpiredValues() {
+    var random = new Random(2);
+    var timeFactory = new ManualTimeFactory();
+    var store = new KeyStore(timeFactory);
+    var expected = new Int2LongOpenHashMap();
+    for (int op = 0; op < 50_000; op++) {
+      if (random.nextInt(4) > 0) {
+        // Updating a key leaves its previous entry in the index to be skipped.
+        var key = random.nextInt(200);
+        var expiryTime = timeFactory.getTime() + random.nextInt(100);
+        store.put(key, expiryTime);
+        expected.put(key, expiryTime);
+      } else {
+        timeFactory.advance(random.nextInt(10));
+        var currentTime = timeFactory.getTime();
+        var evicted = new IntArrayList();
+        for (var entry : expected.int2LongEntrySet()) {
+          if (entry.getLongValue() < currentTime) {
+            evicted.add(entry.getIntKey());
+          }
+        }
+        evicted.forEach(expected::remove);
+        store.evicted.clear();
+        store.refresh();
+        evicted.sort(null);
+        store.evicted.sort(null);
+        assertEquals(evicted, store.evicted);
+      }
+      assertEquals(expected, store.expiryTimes);
+    }
+  }
+
+  @Test
+  void emptyIndexHasNoExpiryTime() {
+    var index = new ExpiryIndex();
+    assertEquals(Long.MAX_VALUE, index.minExpiryTime());
+    index.add(1, 5);
+    index.removeMin();
+    assertEquals(Long.MAX_VALUE, index.minExpiryTime());
+  }
+
+  @Test
+  void refreshSkipsEntriesOfUpdatedValues() {
+    var timeFactory = new ManualTimeFactory();
+    var store = new KeyStore(timeFactory);
+    store.put(1, 5);
+    store.put(1, 50);
+    timeFactory.advance(10);
+    store.refresh();
+    assertEquals(0, store.evictions());
+    assertEquals(50, store.expiryTimes.get(1));
+    timeFactory.advance(50);
+    store.refresh();
+    assertEquals(1, store.evictions());
+    assertEquals(IntList.of(1), store.evicted);
+  }
+
+  // With one value, the index is compacted once it has more than 2 * 1 + 16 entries.
+  @Test
+  void compactsIndexOnceStaleEntriesDominate() {
+    var store = new KeyStore(new ManualTimeFactory());
+    for (int i = 1; i <= 18; i++) {
+      store.put(0, i);
+    }
+    assertEquals(0, store.checked);
+    store.put(0, 19);
+    assertEquals(19, store.checked);
+    // Only the current entry remains, so the index is compacted again after 18 more.
+    for (int i = 20; i <= 36; i++) {
+      store.put(0, i);
+    }
+    assertEquals(19, store.checked);
+    store.put(0, 37);
+    assertEquals(38, store.checked);
+  }
+
+  private record Entry(int key, long expiryTime) {}
+
+  private static final class KeyStore extends ExpirableStore {
+
+    private final Int2LongMap expiryTimes;
+    private final IntList evicted;
+
+    private int checked;
+
+    KeyStore(ManualTimeFactory timeFactory) {
+      super(timeFactory);
+      this.expiryTimes = new Int2LongOpenHashMap();
+      this.evicted = new IntArrayList();
+    }
+
+    void put(int key, long expiryTime) {
+      expiryTimes.put(key, expiryTime);
+      track(key, expiryTime);
+    }
+
+    @Override
+    public int size() {
+      return expiryTimes.size();
+    }
+
+    @Override
+    protected boolean isCurrent(int key, long expiryTime) {
+      checked++;
+      return expiryTimes.containsKey(key) && expiryTimes.get(key) == expiryTime;
+    }
+
+    @Override
+    protected void remove(int key) {
+      expiryTimes.remove(key);
+      evicted.add(key);
+    }
+  }
+}
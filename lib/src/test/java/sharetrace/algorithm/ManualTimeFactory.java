@@ -0,0 +1,22 @@
+package sharetrace.algorithm;
+
+import sharetrace.model.factory.TimeFactory;
+
+final class ManualTimeFactory implements TimeFactory {
+
+  private long time;
+
+  @Override
+  public long getTime() {
+    return time;
+  }
+
+  @Override
+  public String type() {
+    return "Manual";
+  }
+
+  public void advance(long duration) {
+    time += duration;
+  }
+}
@@ -0,0 +1,48 @@
+package sharetrace.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.Timeout.ThreadMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import sharetrace.model.Engine;
+import sharetrace.model.graph.ContactNetwork;
+
+// A run on a failed actor system never completes, so the tests time out instead.
+@Timeout(value = 60, unit = TimeUnit.SECONDS, threadMode = ThreadMode.SEPARATE_THREAD)
+class RiskPropagationTest {
+
+  @Test
+  void reusesActorSystemForConsecutiveRuns() {
+    var first = Runs.network(300, 600, 1);
+    var second = Runs.network(200, 400, 2);
+    assertArrayEquals(Runs.exposureScores(Engine.ACTORS, first), reusingActorSystem(first));
+    assertArrayEquals(Runs.exposureScores(Engine.ACTORS, second), reusingActorSystem(second));
+  }
+
+  @Test
+  void reusesActorSystemForConcurrentRuns() {
+    var first = Runs.network(300, 600, 1);
+    var second = Runs.network(200, 400, 2);
+    var firstScores = CompletableFuture.supplyAsync(() -> reusingActorSystem(first));
+    var secondScores = CompletableFuture.supplyAsync(() -> reusingActorSystem(second));
+    assertArrayEquals(Runs.exposureScores(Engine.ACTORS, first), firstScores.join());
+    assertArrayEquals(Runs.exposureScores(Engine.ACTORS, second), secondScores.join());
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void shardsComputeSameExposureScoresAsUserActors(boolean batch) {
+    var network = Runs.network(300, 600, 1);
+    var expected = Runs.exposureScores(Engine.ACTORS, network);
+    assertArrayEquals(expected, Runs.exposureScores(Engine.ACTORS, 4, batch, false, network));
+  }
+
+  private static double[] reusingActorSystem(ContactNetwork network) {
+    return Runs.exposureScores(Engine.ACTORS, 0, false, true, network);
+  }
+}
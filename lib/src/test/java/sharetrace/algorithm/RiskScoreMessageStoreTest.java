@@ -0,0 +1,148 @@
+package sharetrace.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+import org.junit.jupiter.api.Test;
+import sharetrace.model.message.RiskScoreMessage;
+
+class RiskScoreMessageStoreTest {
+
+  private static final BinaryOperator<RiskScoreMessage> MAX =
+      BinaryOperator.maxBy(
+          Comparator.comparingDouble(RiskScoreMessage::value)
+              .thenComparingLong(RiskScoreMessage::expiryTime));
+
+  /*
+   The range map split the range of a message wherever a greater message overlapped it and then
+   dropped the pieces of the greater message when it expired, so it only agrees with the store while
+   no message expires.
+  */
+  @Test
+  void maxMatchesRangeMapWithoutExpiry() {
+    var random = new Random(1);
+    var store = new RiskScoreMessageStore(new ManualTimeFactory());
+    RangeMap<Long, RiskScoreMessage> expected = TreeRangeMap.create();
+    for (int op = 0; op < 50_000; op++) {
+      if (random.nextInt(2) == 0) {
+        // No message expires at the initial time of 0.
+        var message = randomMessage(random, 1_000, op);
+        store.add(message);
+        expected.merge(Range.closedOpen(message.timestamp(), message.expiryTime()), message, MAX);
+      } else {
+        var timeBound = 1_000L + random.nextInt(120) - 60;
+        var range = expected.subRangeMap(Range.lessThan(timeBound));
+        assertSameMax(max(range.asMapOfRanges().values()), store.max(timeBound));
+        assertSameMax(max(expected.asMapOfRanges().values()), store.max());
+      }
+    }
+  }
+
+  @Test
+  void maxMatchesUnexpiredMessages() {
+    var random = new Random(2);
+    var timeFactory = new ManualTimeFactory();
+    var store = new RiskScoreMessageStore(timeFactory);
+    var expected = new ArrayList<RiskScoreMessage>();
+    for (int op = 0; op < 50_000; op++) {
+      var choice = random.nextInt(10);
+      var currentTime = timeFactory.getTime();
+      if (choice < 5) {
+        var message = randomMessage(random, currentTime, op);
+        store.add(message);
+        expected.add(message);
+      } else if (choice < 9) {
+        var timeBound = currentTime + random.nextInt(120) - 60;
+        expected.removeIf(message -> message.isExpired(currentTime));
+        var relevant = expected.stream().filter(message -> message.timestamp() < timeBound);
+        assertSameMax(max(relevant.toList()), store.max(timeBound));
+      } else {
+        timeFactory.advance(random.nextInt(20));
+      }
+    }
+  }
+
+  @Test
+  void maxOnlyConsidersEarlierTimestamps() {
+    var store = new RiskScoreMessageStore(new ManualTimeFactory());
+    var earlier = message(0.3, 10, 100);
+    var later = message(0.9, 20, 100);
+    store.add(earlier);
+    store.add(later);
+    assertSame(RiskScoreMessage.NULL, store.max(10));
+    assertSame(earlier, store.max(20));
+    assertSame(later, store.max(21));
+    assertSame(later, store.max());
+  }
+
+  @Test
+  void dropsMessageDominatedOnlyOnExpiry() {
+    var store = new RiskScoreMessageStore(new ManualTimeFactory());
+    var message = message(0.5, 10, 100);
+    store.add(message);
+    store.add(message(0.5, 10, 50));
+    store.add(message(0.5, 20, 99));
+    assertEquals(1, store.size());
+    assertSame(message, store.max(21));
+  }
+
+  @Test
+  void replacesMessagesThatNewMessageDominates() {
+    var store = new RiskScoreMessageStore(new ManualTimeFactory());
+    store.add(message(0.5, 20, 50));
+    store.add(message(0.4, 30, 60));
+    var message = message(0.5, 10, 60);
+    store.add(message);
+    assertEquals(1, store.size());
+    assertSame(message, store.max(11));
+    assertSame(message, store.max());
+  }
+
+  @Test
+  void keepsLowerMessageThatExpiresLater() {
+    var timeFactory = new ManualTimeFactory();
+    var store = new RiskScoreMessageStore(timeFactory);
+    var higher = message(0.8, 10, 50);
+    var lower = message(0.5, 20, 100);
+    store.add(higher);
+    store.add(lower);
+    assertEquals(2, store.size());
+    assertSame(higher, store.max());
+    timeFactory.advance(51);
+    assertSame(lower, store.max());
+    assertEquals(1, store.evictions());
+    timeFactory.advance(50);
+    assertSame(RiskScoreMessage.NULL, store.max());
+    assertEquals(0, store.size());
+  }
+
+  // Few distinct values and expiry times so that ties and dominated messages are common.
+  private static RiskScoreMessage randomMessage(Random random, long currentTime, int sender) {
+    var timestamp = currentTime + random.nextInt(100) - 50;
+    var expiryTime = timestamp + 1 + random.nextInt(60);
+    var value = random.nextInt(8) / 8d;
+    return new RiskScoreMessage(value, timestamp, expiryTime, sender, sender);
+  }
+
+  private static RiskScoreMessage message(double value, long timestamp, long expiryTime) {
+    return new RiskScoreMessage(value, timestamp, expiryTime, 0, 0);
+  }
+
+  private static RiskScoreMessage max(Collection<RiskScoreMessage> messages) {
+    return messages.stream().reduce(MAX).orElse(RiskScoreMessage.NULL);
+  }
+
+  private static void assertSameMax(RiskScoreMessage expected, RiskScoreMessage actual) {
+    // Messages that tie by value and expiry time are interchangeable.
+    assertEquals(expected.value(), actual.value());
+    assertEquals(expected.expiryTime(), actual.expiryTime());
+  }
+}
@@ -0,0 +1,189 @@
+package sharetrace.algorithm;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import java.time.Duration;
+import java.util.Random;
+import java.util.SplittableRandom;
+import org.jgrapht.generate.GraphGenerator;
+import sharetrace.logging.LogRecord;
+import sharetrace.logging.NullRecordLogger;
+import sharetrace.logging.RecordLogger;
+import sharetrace.logging.event.user.UpdateEvent;
+import sharetrace.model.ContextBuilder;
+import sharetrace.model.Engine;
+import sharetrace.model.Parameters;
+import sharetrace.model.RiskScore;
+import sharetrace.model.factory.ContactNetworkFactory;
+import sharetrace.model.factory.KeyFactory;
+import sharetrace.model.factory.RiskScoreFactory;
+import sharetrace.model.factory.SupplierTimeFactory;
+import sharetrace.model.graph.CompactContactNetwork;
+import sharetrace.model.graph.ContactNetwork;
+import sharetrace.model.graph.TemporalEdge;
+
+/*
+ Runs risk propagation with a fixed user time, so that no score or contact expires. Every score is
+ older than every contact, so the exposure scores do not depend on the order in which messages are
+ delivered or on which buffered messages are replaced before a flush.
+*/
+final class Runs {
+
+  static final long REFERENCE_TIME = 1_000_000_000_000L;
+
+  private static final long DAY = Duration.ofDays(1).toMillis();
+  private static final long EXPIRY = 30 * DAY;
+
+  private Runs() {}
+
+  // Returns the exposure score of each user after a run.
+  public static double[] exposureScores(
+      Engine engine, int shards, boolean batch, boolean reuseActorSystem, ContactNetwork network) {
+    var updates = new UpdateLogger(network.nodes());
+    var time = new SupplierTimeFactory(() -> REFERENCE_TIME, "Fixed");
+    var context =
+        ContextBuilder.create()
+            .referenceTime(REFERENCE_TIME)
+            .engine(engine)
+            .shards(shards)
+            .batch(batch)
+            .reuseActorSystem(reuseActorSystem)
+            .userTimeFactory(time)
+            .systemTimeFactory(new SupplierTimeFactory(System::currentTimeMillis, "System"))
+            .eventLogger(updates)
+            .propertyLogger(new NullRecordLogger())
+            .build();
+    new RiskPropagation(context, parameters(), new Scores(), networkFactory(network), new Key())
+        .run();
+    return updates.exposureScores;
+  }
+
+  public static double[] exposureScores(Engine engine, ContactNetwork network) {
+    return exposureScores(engine, 0, false, false, network);
+  }
+
+  // A connected network: each user after the first meets an earlier one, plus random contacts.
+  public static ContactNetwork network(int nodes, int extraContacts, long seed) {
+    var random = new Random(seed);
+    var contacts = new LongOpenHashSet();
+    for (int i = 1; i < nodes; i++) {
+      contacts.add(contact(i, random.nextInt(i)));
+    }
+    while (contacts.size() < nodes - 1 + extraContacts) {
+      var i = random.nextInt(nodes);
+      var j = random.nextInt(nodes);
+      if (i != j) {
+        contacts.add(contact(i, j));
+      }
+    }
+    var sources = new int[contacts.size()];
+    var targets = new int[contacts.size()];
+    var times = new long[contacts.size()];
+    var e = 0;
+    for (var iterator = contacts.iterator(); iterator.hasNext(); e++) {
+      var contact = iterator.nextLong();
+      sources[e] = (int) (contact >>> 32);
+      targets[e] = (int) contact;
+      times[e] = REFERENCE_TIME - random.nextLong(10 * DAY);
+    }
+    return CompactContactNetwork.of("test", nodes, sources, targets, times);
+  }
+
+  public static ContactNetwork emptyNetwork() {
+    return network(0, 0, 0);
+  }
+
+  private static long contact(int i, int j) {
+    return ((long) Math.min(i, j) << 32) | Math.max(i, j);
+  }
+
+  private static Parameters parameters() {
+    return new Parameters(
+        0.8,
+        1,
+        0,
+        2 * DAY,
+        EXPIRY,
+        EXPIRY,
+        Duration.ofMillis(10),
+        false,
+        0,
+        Duration.ofSeconds(10),
+        Duration.ofMillis(100));
+  }
+
+  private static ContactNetworkFactory networkFactory(ContactNetwork network) {
+    return new ContactNetworkFactory() {
+      @Override
+      public String type() {
+        return "Test";
+      }
+
+      @Override
+      public GraphGenerator<Integer, TemporalEdge, ?> graphGenerator() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public ContactNetwork getContactNetwork() {
+        return network;
+      }
+    };
+  }
+
+  // The score of a user only depends on the user, so it is the same whatever order users ask in.
+  private record Scores() implements RiskScoreFactory {
+
+    @Override
+    public String id() {
+      return "test";
+    }
+
+    @Override
+    public String type() {
+      return "Test";
+    }
+
+    @Override
+    public RiskScore getRiskScore(int key) {
+      var random = new SplittableRandom(key);
+      var timestamp = REFERENCE_TIME - 10 * DAY - random.nextLong(10 * DAY);
+      return RiskScore.fromExpiry(random.nextDouble(), timestamp, EXPIRY);
+    }
+  }
+
+  private record Key() implements KeyFactory {
+
+    @Override
+    public String getKey() {
+      return "test";
+    }
+
+    @Override
+    public String type() {
+      return "Test";
+    }
+  }
+
+  // Exposure scores only increase while nothing expires, so the maximum update is the last.
+  private static final class UpdateLogger implements RecordLogger {
+
+    private final double[] exposureScores;
+
+    UpdateLogger(int users) {
+      exposureScores = new double[users];
+    }
+
+    @Override
+    public synchronized void log(LogRecord record) {
+      if (record instanceof UpdateEvent update) {
+        var i = update.self();
+        exposureScores[i] = Math.max(exposureScores[i], update.current().value());
+      }
+    }
+
+    @Override
+    public boolean isLogged(Class<? extends LogRecord> type) {
+      return type == UpdateEvent.class;
+    }
+  }
+}
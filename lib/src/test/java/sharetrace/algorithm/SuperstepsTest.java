@@ -0,0 +1,26 @@
+package sharetrace.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import sharetrace.model.Engine;
+
+class SuperstepsTest {
+
+  @Test
+  void computesSameExposureScoresAsActors() {
+    var network = Runs.network(300, 600, 1);
+    var expected = Runs.exposureScores(Engine.ACTORS, network);
+    assertArrayEquals(expected, Runs.exposureScores(Engine.BSP, network));
+  }
+
+  @Test
+  void endsWithoutUsers() {
+    var scores =
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(5), () -> Runs.exposureScores(Engine.BSP, Runs.emptyNetwork()));
+    assertArrayEquals(new double[0], scores);
+  }
+}
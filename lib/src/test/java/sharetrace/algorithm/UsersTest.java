@@ -0,0 +1,60 @@
+package sharetrace.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import sharetrace.logging.NullRecordLogger;
+import sharetrace.model.Context;
+import sharetrace.model.ContextBuilder;
+import sharetrace.model.Parameters;
+import sharetrace.model.graph.CompactContactNetwork;
+import sharetrace.model.message.ContactsMessage;
+import sharetrace.model.message.RiskScoreMessage;
+
+class UsersTest {
+
+  private static final long CONTACT_EXPIRY = 200;
+
+  @Test
+  void flushesBufferedMessageOfExpiredContact() {
+    var timeFactory = new ManualTimeFactory();
+    var users = new Users(0, 1, context(timeFactory), parameters(), new Metrics(), new Progress());
+    // User 0 meets user 1 at time 100 and user 2 at time 300.
+    var network =
+        CompactContactNetwork.of(
+            "test", 3, new int[] {0, 0}, new int[] {1, 2}, new long[] {100, 300});
+    users.add(new ContactsMessage(0, network, CONTACT_EXPIRY));
+    users.receive(0, new RiskScoreMessage(0.5, 50, 1_000, 3, 3));
+    assertEquals(2, users.bufferedCount());
+    // The contact with user 1 expires at time 300, before the buffered messages are flushed.
+    timeFactory.advance(350);
+    users.receive(0, new RiskScoreMessage(0.9, 60, 1_000, 4, 4));
+    var sent = new Int2ObjectOpenHashMap<RiskScoreMessage>();
+    users.flush(sent::put);
+    assertEquals(2, sent.size());
+    assertEquals(0.9 * 0.8, sent.get(1).value());
+    // The flush evicts the expired contact, so it receives nothing more.
+    users.receive(0, new RiskScoreMessage(0.95, 70, 1_000, 5, 5));
+    sent.clear();
+    users.flush(sent::put);
+    assertEquals(1, sent.size());
+    assertEquals(0.95 * 0.8, sent.get(2).value());
+  }
+
+  private static Context context(ManualTimeFactory timeFactory) {
+    return ContextBuilder.create()
+        .userTimeFactory(timeFactory)
+        .systemTimeFactory(timeFactory)
+        .eventLogger(new NullRecordLogger())
+        .propertyLogger(new NullRecordLogger())
+        .build();
+  }
+
+  private static Parameters parameters() {
+    var duration = Duration.ofSeconds(1);
+    return new Parameters(
+        0.8, 1, 0, 1_000, 1_000, CONTACT_EXPIRY, duration, false, 0, duration, duration);
+  }
+}